@@ -28,6 +28,7 @@ import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
@@ -107,6 +108,61 @@ public interface EnhancedMap extends Map<String, String[]>, Cloneable, Serializa
 
    <T> Optional<T> getOptional(Class<T> clazz, String... keys);
 
+   /**
+    * Look for a setting without throwing a {@link NoValueException} when none of the keys is present, a miss costs
+    * about the same as a hit.
+    *
+    * @param <T>
+    * @param clazz
+    * @param keys
+    * @return the value of the first key found or null when none of the keys is present
+    */
+   default <T> Found<T> lookup(Class<T> clazz, String... keys) {
+      for (String key : keys) {
+         if (containsKey(key)) {
+            return new Found<>(getGenericProperty(null, clazz, key));
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Look for an int setting without boxing and without varargs.
+    *
+    * @param key
+    * @param defaultValue
+    * @return the value or the default when the key is not present or has no value
+    */
+   default int getInt(String key, int defaultValue) {
+      return hasValue(key) ? getIntegerProperty(null, key) : defaultValue;
+   }
+
+   /**
+    * @see #getInt(String, int)
+    */
+   default long getLong(String key, long defaultValue) {
+      return hasValue(key) ? getLongProperty(null, key) : defaultValue;
+   }
+
+   /**
+    * @see #getInt(String, int)
+    */
+   default double getDouble(String key, double defaultValue) {
+      return hasValue(key) ? getDoubleProperty(null, key) : defaultValue;
+   }
+
+   /**
+    * @see #getInt(String, int)
+    */
+   default boolean getBoolean(String key, boolean defaultValue) {
+      return hasValue(key) ? getBooleanProperty(null, key) : defaultValue;
+   }
+
+   private boolean hasValue(String key) {
+      String[] v = get(key);
+      return v != null && v.length > 0 && v[0] != null && !v[0].isEmpty();
+   }
+
    PropertyHelp getHelp(String key);
 
    Map<String, PropertyHelp> getHelp();
@@ -144,4 +200,67 @@ public interface EnhancedMap extends Map<String, String[]>, Cloneable, Serializa
    String[] put(String key, String value);
    
    void put(Map<String, String> m);
+
+   /**
+    * The {@link #getVersion() version} of settings that do not keep one, users of the version should assume the settings
+    * may have changed.
+    */
+   long UNVERSIONED = Long.MIN_VALUE;
+
+   /**
+    * A number that changes whenever the key/values in the settings change. The default implementation returns
+    * {@link #UNVERSIONED}, implementations should override it with a counter.
+    *
+    * @return
+    */
+   default long getVersion() {
+      return UNVERSIONED;
+   }
+
+   /**
+    * Create a handle to a setting that caches its value until the settings change.
+    *
+    * @param <T>
+    * @param clazz
+    * @param defaultValue
+    * @param keys
+    * @return
+    * @see SettingKey
+    */
+   default <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+      return new SettingKey<>(this, clazz, defaultValue, keys);
+   }
+
+   /**
+    * Resolve all entries of a query in one traversal of the settings.
+    *
+    * @param query
+    * @return
+    * @throws NoValueException when an entry has no value and no default and the query does not
+    * {@link SettingsQuery#isAllowNoValue() allow no value}
+    */
+   default SettingsQuery.Result query(SettingsQuery query) {
+      return new SettingsQuery.Result(query, getVersion(), e -> {
+         Found<?> found = lookup(e.getType(), e.getKeys());
+         if (found != null) {
+            return found.getValue();
+         } else if (e.getDefaultValue() == null && !query.isAllowNoValue()) {
+            throw new NoValueException(String.format("no value for %s", Arrays.toString(e.getKeys())));
+         }
+         return e.getDefaultValue();
+      });
+   }
+
+   /**
+    * A live view on the settings with keys starting with a prefix, reads and writes are delegated to these settings.
+    * Call this on the outermost decorator to share its caches and observers.
+    *
+    * @param prefix for example "http.client."
+    * @param stripPrefix when true keys in the view are without the prefix
+    * @return
+    * @see SettingsSubset
+    */
+   default EnhancedMap subset(String prefix, boolean stripPrefix) {
+      return new SettingsSubset(this, prefix, stripPrefix);
+   }
 }
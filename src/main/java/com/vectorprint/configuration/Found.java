@@ -0,0 +1,50 @@
+package com.vectorprint.configuration;
+
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The result of {@link EnhancedMap#lookup(Class, String...) } when one of the keys is present. A lookup for keys that
+ * are not present returns null instead, so optional settings can be probed without a {@link NoValueException}.
+ *
+ * @param <T>
+ */
+public final class Found<T> {
+
+    private final T value;
+
+    public Found(T value) {
+        this.value = value;
+    }
+
+    /**
+     * @return the converted value, may be null for an empty setting
+     */
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Found{" + "value=" + value + '}';
+    }
+}
@@ -0,0 +1,657 @@
+package com.vectorprint.configuration;
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.VectorPrintRuntimeException;
+import com.vectorprint.configuration.binding.AbstractBindingHelperDecorator;
+import com.vectorprint.configuration.binding.settings.EnhancedMapBindingFactory;
+import com.vectorprint.configuration.binding.settings.SettingsBindingService;
+import jakarta.validation.constraints.NotNull;
+
+import java.awt.*;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Serial;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable snapshot of settings, meant for read mostly (production) use. Keys are interned and stored in a compact
+ * open addressing table, lookups do not write anything, so {@link #getUnusedKeys() } and {@link #getKeysNotPresent() }
+ * are always empty. Values returned are copies. Instances can be shared between threads without locking. When settings are reloaded create a new
+ * snapshot using {@link #freeze(EnhancedMap) }, all methods that would change a snapshot throw a
+ * {@link VectorPrintRuntimeException}.
+ */
+public final class FrozenSettings extends AbstractMap<String, String[]> implements EnhancedMap {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+    private static final String READONLY = "Properties are readonly";
+
+    private final String[] keys;
+    private final String[][] values;
+    private final int mask;
+    private final int size;
+    private final String id;
+    private final Map<String, PropertyHelp> help;
+    private final long version;
+
+    /**
+     * Copies keys, values, {@link #getHelp() help} and {@link #getId() id} of the argument, which may be a
+     * {@link Settings} object or a stack of decorators.
+     *
+     * @param settings
+     */
+    public FrozenSettings(EnhancedMap settings) {
+        this(settings, 0);
+    }
+
+    /**
+     * @param settings
+     * @param version the version of the snapshot, see {@link VersionedSettings}
+     */
+    FrozenSettings(EnhancedMap settings, long version) {
+        this.version = version;
+        size = settings.size();
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new String[capacity][];
+        mask = capacity - 1;
+        for (Entry<String, String[]> e : settings.entrySet()) {
+            int i = indexFor(e.getKey());
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = e.getKey().intern();
+            values[i] = e.getValue() == null ? null : e.getValue().clone();
+        }
+        id = settings.getId();
+        help = Collections.unmodifiableMap(new HashMap<>(settings.getHelp()));
+    }
+
+    /**
+     * Create an immutable snapshot of settings
+     *
+     * @param settings
+     * @return
+     * @see #FrozenSettings(EnhancedMap)
+     */
+    public static FrozenSettings freeze(EnhancedMap settings) {
+        return new FrozenSettings(settings);
+    }
+
+    private int indexFor(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @param key
+     * @return the slot of the key in the table or -1
+     */
+    private int slot(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int i = indexFor(key);
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * determine the slot of the first key present, throw a {@link NoValueException} when no key is found and no
+     * default is given.
+     *
+     * @param defaultVal
+     * @param keys
+     * @return the slot or -1 to use a default value
+     */
+    private int slot(Object defaultVal, String... keys) {
+        if (keys == null || keys.length == 0 || keys[0] == null) {
+            throw new VectorPrintRuntimeException("You should provide at least one key");
+        }
+        int s = firstSlot(keys);
+        if (s != -1) {
+            return s;
+        }
+        if (defaultVal == null) {
+            throw new NoValueException(Arrays.asList(keys) + " not found and default is null");
+        }
+        return -1;
+    }
+
+    private String first(int slot) {
+        String[] l = values[slot];
+        if (l == null || l.length == 0) {
+            return null;
+        }
+        if (l.length > 1) {
+            throw new VectorPrintRuntimeException(String.format("more then one value (%s) for %s, expected one",
+                    getFactory().getBindingHelper().serializeValue(l), keys[slot]));
+        }
+        return l[0];
+    }
+
+    private <T> T convert(int slot, Class<T> clazz) {
+        return getFactory().getBindingHelper().convert(first(slot), clazz);
+    }
+
+    private static EnhancedMapBindingFactory getFactory() {
+        return SettingsBindingService.getInstance().getFactory();
+    }
+
+    @Override
+    public String[] get(Object key) {
+        int s = slot(key);
+        return s == -1 ? null : copy(s);
+    }
+
+    /**
+     * @param slot
+     * @return a copy of the value, callers cannot change the snapshot
+     */
+    private String[] copy(int slot) {
+        String[] v = values[slot];
+        return v == null ? null : v.clone();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slot(key) != -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * When only one argument is given it is assumed to be a key and not a
+     * default value.
+     *
+     * @param defaultValue
+     * @param keys
+     * @return
+     */
+    @Override
+    public String getProperty(String defaultValue, String... keys) {
+        boolean defaultIsKey = defaultValue != null && (keys == null || keys.length == 0);
+        int s = defaultIsKey
+                ? slot(null, defaultValue)
+                : slot(defaultValue, keys);
+        return s == -1 ? defaultValue : first(s);
+    }
+
+    @Override
+    public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Boolean.class);
+    }
+
+    @Override
+    public Class getClassProperty(Class defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Class.class);
+    }
+
+    @Override
+    public Class[] getClassProperties(Class[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], Class.class);
+    }
+
+    @Override
+    public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Pattern.class);
+    }
+
+    @Override
+    public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], Pattern.class);
+    }
+
+    @Override
+    public Color getColorProperty(Color defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Color.class);
+    }
+
+    @Override
+    public double getDoubleProperty(Double defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Double.class);
+    }
+
+    @Override
+    public short getShortProperty(Short defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Short.class);
+    }
+
+    @Override
+    public char getCharProperty(Character defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Character.class);
+    }
+
+    @Override
+    public byte getByteProperty(Byte defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Byte.class);
+    }
+
+    @Override
+    public short[] getShortProperties(short[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseShortValues(values[s]);
+    }
+
+    @Override
+    public char[] getCharProperties(char[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseCharValues(values[s]);
+    }
+
+    @Override
+    public byte[] getByteProperties(byte[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseByteValues(values[s]);
+    }
+
+    @Override
+    public float getFloatProperty(Float defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Float.class);
+    }
+
+    @Override
+    public int getIntegerProperty(Integer defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Integer.class);
+    }
+
+    @Override
+    public long getLongProperty(Long defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, Long.class);
+    }
+
+    @Override
+    public URL getURLProperty(URL defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, URL.class);
+    }
+
+    @Override
+    public File getFileProperty(File defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, File.class);
+    }
+
+    @Override
+    public File[] getFileProperties(File[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], File.class);
+    }
+
+    @Override
+    public String[] getStringProperties(String[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : copy(s);
+    }
+
+    @Override
+    public URL[] getURLProperties(URL[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], URL.class);
+    }
+
+    @Override
+    public float[] getFloatProperties(float[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseFloatValues(values[s]);
+    }
+
+    @Override
+    public double[] getDoubleProperties(double[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseDoubleValues(values[s]);
+    }
+
+    @Override
+    public int[] getIntegerProperties(int[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseIntValues(values[s]);
+    }
+
+    @Override
+    public long[] getLongProperties(long[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseLongValues(values[s]);
+    }
+
+    @Override
+    public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parseBooleanValues(values[s]);
+    }
+
+    @Override
+    public Color[] getColorProperties(Color[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], Color.class);
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : convert(s, LocalDateTime.class);
+    }
+
+    @Override
+    public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : AbstractBindingHelperDecorator.parse(values[s], LocalDateTime.class);
+    }
+
+    @Override
+    public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+        int s = slot(defaultValue, keys);
+        return s == -1 ? defaultValue : getGenericProperty(s, clazz);
+    }
+
+    private <T> T getGenericProperty(int slot, Class<T> clazz) {
+        if (clazz.isArray()) {
+            if (String[].class.equals(clazz)) {
+                return (T) copy(slot);
+            }
+            return getFactory().getBindingHelper().convert(values[slot], clazz);
+        } else {
+            if (String.class.equals(clazz)) {
+                return (T) first(slot);
+            }
+            return convert(slot, clazz);
+        }
+    }
+
+    @Override
+    public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
+        Found<T> found = lookup(clazz, keys);
+        return found == null ? Optional.empty() : Optional.ofNullable(found.getValue());
+    }
+
+    @Override
+    public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+        int s = firstSlot(keys);
+        return s == -1 ? null : new Found<>(getGenericProperty(s, clazz));
+    }
+
+    /**
+     * @param keys
+     * @return the slot of the first key present or -1
+     */
+    private int firstSlot(String[] keys) {
+        for (String k : keys) {
+            int s = slot(k);
+            if (s != -1) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        String v = getPrimitive(key);
+        return v == null ? defaultValue : PrimitiveValues.parseInt(v);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        String v = getPrimitive(key);
+        return v == null ? defaultValue : PrimitiveValues.parseLong(v);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        String v = getPrimitive(key);
+        return v == null ? defaultValue : PrimitiveValues.parseDouble(v);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String v = getPrimitive(key);
+        return v == null ? defaultValue : PrimitiveValues.parseBoolean(v);
+    }
+
+    private String getPrimitive(String key) {
+        if (key == null) {
+            throw new VectorPrintRuntimeException("You should provide at least one key");
+        }
+        int s = slot(key);
+        String v = s == -1 ? null : first(s);
+        return v == null || v.isEmpty() ? null : v;
+    }
+
+    @Override
+    public EnhancedMap subset(String prefix, boolean stripPrefix) {
+        return new SettingsSubset(this, prefix, stripPrefix);
+    }
+
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        return new SettingsQuery.Result(query, version, e -> resolve(e, query.isAllowNoValue()));
+    }
+
+    private <T> T resolve(SettingsQuery.Entry<T> e, boolean allowNoValue) {
+        int s = allowNoValue ? firstSlot(e.getKeys()) : slot(e.getDefaultValue(), e.getKeys());
+        return s == -1 ? e.getDefaultValue() : getGenericProperty(s, e.getType());
+    }
+
+    @Override
+    public PropertyHelp getHelp(String key) {
+        if (help.containsKey(key)) {
+            return help.get(key);
+        } else {
+            return new PropertyHelpImpl("no help configured for " + key);
+        }
+    }
+
+    @Override
+    public Map<String, PropertyHelp> getHelp() {
+        return help;
+    }
+
+    @Override
+    public String printHelp() {
+        StringBuilder sb = new StringBuilder(1024);
+        help.forEach((key, value) -> sb.append(key).append(": ").append(value.getType())
+                .append("; ")
+                .append(value.getExplanation())
+                .append(System.lineSeparator()));
+        return sb.toString();
+    }
+
+    @Override
+    public void listProperties(PrintStream ps) {
+        ps.printf("frozen settings with id %s:%n", getId());
+        ps.println();
+        forEach((key, value) -> ps.printf("%s=%s%n", key, value != null ? Arrays.asList(value) : ""));
+        ps.println();
+    }
+
+    /**
+     * @return this, a snapshot is immutable
+     */
+    @Override
+    public FrozenSettings clone() {
+        return this;
+    }
+
+    /**
+     * lookups are not tracked
+     *
+     * @return an empty collection
+     */
+    @Override
+    public Collection<String> getUnusedKeys() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * lookups are not tracked
+     *
+     * @return an empty collection
+     */
+    @Override
+    public Collection<String> getKeysNotPresent() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(String id) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public void setHelp(Map<String, PropertyHelp> h) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public String[] put(String key, String value) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public String[] put(String key, String[] value) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public void put(Map<String, String> m) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String[]> m) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public String[] remove(Object key) {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public void clear() {
+        throw new VectorPrintRuntimeException(READONLY);
+    }
+
+    @Override
+    public @NotNull Set<Entry<String, String[]>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String[]>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < keys.length && keys[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String[]> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String[]> e = new SimpleImmutableEntry<>(keys[next], copy(next));
+                        next = advance(next + 1);
+                        return e;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return the version of {@link VersionedSettings} this snapshot was published as, otherwise 0, a snapshot never
+     * changes
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+        return new SettingKey<>(this, clazz, defaultValue, keys);
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenSettings{" + "id=" + id + ", size=" + size + '}';
+    }
+
+}
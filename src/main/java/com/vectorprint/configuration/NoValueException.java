@@ -37,6 +37,27 @@ public class NoValueException extends VectorPrintRuntimeException {
     public NoValueException(String message) {
         super(message);
     }
+
+    private static volatile boolean stackTraces = true;
+
+    /**
+     * When false NoValueExceptions are created without a stack trace, which is cheap when they are used for control
+     * flow. The default is true.
+     *
+     * @param stackTraces
+     */
+    public static void setStackTraces(boolean stackTraces) {
+        NoValueException.stackTraces = stackTraces;
+    }
+
+    public static boolean isStackTraces() {
+        return stackTraces;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return stackTraces ? super.fillInStackTrace() : this;
+    }
     
     
 }
@@ -0,0 +1,66 @@
+package com.vectorprint.configuration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.configuration.binding.BindingHelper;
+import com.vectorprint.configuration.binding.BindingHelperImpl;
+import com.vectorprint.configuration.binding.settings.SettingsBindingService;
+
+/**
+ * Parsing for {@link EnhancedMap#getInt(String, int) } and friends, shared by {@link Settings} and
+ * {@link FrozenSettings} so a value gives the same result or fails the same way in both, and the same as through
+ * {@link EnhancedMap#getIntegerProperty(Integer, String...) } and friends. Values are parsed directly without boxing
+ * unless a {@link BindingHelper} other than the default is configured, then that one converts.
+ */
+final class PrimitiveValues {
+
+    private PrimitiveValues() {
+    }
+
+    /**
+     * @return the configured binding helper when it is not the default one, otherwise null
+     */
+    private static BindingHelper custom() {
+        BindingHelper helper = SettingsBindingService.getInstance().getFactory().getBindingHelper();
+        return helper.getClass() == BindingHelperImpl.class ? null : helper;
+    }
+
+    static int parseInt(String value) {
+        BindingHelper helper = custom();
+        return helper == null ? Integer.parseInt(value) : helper.convert(value, Integer.class);
+    }
+
+    static long parseLong(String value) {
+        BindingHelper helper = custom();
+        return helper == null ? Long.parseLong(value) : helper.convert(value, Long.class);
+    }
+
+    static double parseDouble(String value) {
+        BindingHelper helper = custom();
+        return helper == null ? Double.parseDouble(value) : helper.convert(value, Double.class);
+    }
+
+    static boolean parseBoolean(String value) {
+        BindingHelper helper = custom();
+        return helper == null ? Boolean.parseBoolean(value) : helper.convert(value, Boolean.class);
+    }
+}
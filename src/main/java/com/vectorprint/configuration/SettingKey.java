@@ -0,0 +1,121 @@
+package com.vectorprint.configuration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A precompiled handle to a setting, created once by {@link EnhancedMap#settingKey(Class, Object, String...) }.
+ * The first {@link #get() } resolves the key and converts the value, subsequent calls return the cached value as long
+ * as the {@link EnhancedMap#getVersion() version} of the settings does not change. When the version changes, or the
+ * settings are {@link EnhancedMap#UNVERSIONED unversioned}, the handle checks whether the key found and its raw value
+ * are still the same, only then it converts again. Handles are thread safe.
+ *
+ * @param <T> the type of the setting
+ */
+public final class SettingKey<T> {
+
+    private final EnhancedMap settings;
+    private final Class<T> clazz;
+    private final T defaultValue;
+    private final String[] keys;
+    private volatile Resolved<T> resolved;
+
+    /**
+     * @param settings the settings to read from, normally the outermost decorator
+     * @param clazz the type of the setting
+     * @param defaultValue the default when none of the keys is present, null means a value is required
+     * @param keys the keys to look for, the first found is used
+     */
+    public SettingKey(EnhancedMap settings, Class<T> clazz, T defaultValue, String... keys) {
+        this.settings = Objects.requireNonNull(settings);
+        this.clazz = Objects.requireNonNull(clazz);
+        if (keys == null || keys.length == 0 || keys[0] == null) {
+            throw new IllegalArgumentException("You should provide at least one key");
+        }
+        this.defaultValue = defaultValue;
+        this.keys = keys.clone();
+    }
+
+    /**
+     * @return the value of the setting, resolved only when the settings changed since the last call
+     * @throws NoValueException when no key is found and the default is null
+     */
+    public T get() {
+        Resolved<T> r = resolved;
+        long version = settings.getVersion();
+        if (r != null && r.version == version && version != EnhancedMap.UNVERSIONED) {
+            return r.value;
+        }
+        return resolve(r, version);
+    }
+
+    private T resolve(Resolved<T> previous, long version) {
+        String key = null;
+        for (String k : keys) {
+            if (settings.containsKey(k)) {
+                key = k;
+                break;
+            }
+        }
+        String[] raw = key == null ? null : settings.get(key);
+        T value;
+        if (previous != null && Objects.equals(previous.key, key) && previous.raw == raw) {
+            value = previous.value;
+        } else {
+            value = settings.getGenericProperty(defaultValue, clazz, keys);
+        }
+        resolved = new Resolved<>(version, key, raw, value);
+        return value;
+    }
+
+    /**
+     * forget the cached value, the next {@link #get() } will resolve the setting
+     */
+    public void invalidate() {
+        resolved = null;
+    }
+
+    public Class<T> getType() {
+        return clazz;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return a copy of the keys of this handle
+     */
+    public String[] getKeys() {
+        return keys.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "SettingKey{" + "clazz=" + clazz.getName() + ", keys=" + Arrays.toString(keys) + ", defaultValue=" + defaultValue + '}';
+    }
+
+    private record Resolved<T>(long version, String key, String[] raw, T value) {
+    }
+}
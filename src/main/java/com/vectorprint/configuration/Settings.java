@@ -22,11 +22,15 @@ package com.vectorprint.configuration;
 
 import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.binding.AbstractBindingHelperDecorator;
+import com.vectorprint.configuration.binding.BindingHelper;
 import com.vectorprint.configuration.binding.settings.EnhancedMapBindingFactory;
 import com.vectorprint.configuration.binding.settings.SettingsBindingService;
 import com.vectorprint.configuration.decoration.AbstractPropertiesDecorator;
-import com.vectorprint.configuration.decoration.AllowNoValue;
 import com.vectorprint.configuration.decoration.DecorationAware;
+import com.vectorprint.configuration.jfr.LookupEvent;
+import com.vectorprint.configuration.management.SettingsDiagnostics;
+import com.vectorprint.configuration.management.SettingsStats;
+import com.vectorprint.configuration.management.StatsAware;
 import jakarta.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +39,6 @@ import java.awt.*;
 import java.io.File;
 import java.io.PrintStream;
 import java.io.Serial;
-import java.lang.ref.Cleaner;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
@@ -45,31 +48,29 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
-public final class Settings implements EnhancedMap, DecorationAware {
+public final class Settings implements EnhancedMap, DecorationAware, StatsAware {
 
-    private static final Cleaner CLEANER = Cleaner.create();
     @Serial
     private static final long serialVersionUID = 1;
     private static final Logger log = LoggerFactory.getLogger(Settings.class.getName());
     private final Map<String, String[]> backingMap;
-
-    private transient final Runnable finalizer = new Runnable() {
-
-        @Override
-        public void run() {
-            log.warn("not used, possibly obsolete settings in: %s: %s".formatted(this, getUnusedKeys()));
-        }
-    };
-
-    private final transient Cleaner.Cleanable cleanable;
+    private final boolean concurrent;
+    private final AtomicLong version = new AtomicLong();
+    private transient volatile SettingsStats stats;
 
     @Override
     public void listProperties(PrintStream ps) {
@@ -79,15 +80,16 @@ public final class Settings implements EnhancedMap, DecorationAware {
         ps.println();
         ps.printf("settings wrapped by %s%n", decorators);
     }
-    private String id;
-    private final Map<String, PropertyHelp> help = new HashMap<>(50);
-    private final List<Class<? extends AbstractPropertiesDecorator>> decorators
-            = new ArrayList<>(3);
-    private AbstractPropertiesDecorator outermostDecorator;
+    /**
+     * shared with {@link #detachedUnusedKeys() }
+     */
+    private final AtomicReference<String> id = new AtomicReference<>();
+    private final Map<String, PropertyHelp> help;
+    private final List<Class<? extends AbstractPropertiesDecorator>> decorators;
+    private volatile AbstractPropertiesDecorator outermostDecorator;
 
     public Settings() {
-        backingMap = new HashMap<>();
-        cleanable = CLEANER.register(this, finalizer);
+        this(new HashMap<>(), false);
     }
 
     /**
@@ -97,8 +99,7 @@ public final class Settings implements EnhancedMap, DecorationAware {
      * @param loadFactor
      */
     public Settings(int initialCapacity, float loadFactor) {
-        backingMap = new HashMap<>(initialCapacity, loadFactor);
-        cleanable = CLEANER.register(this, finalizer);
+        this(new HashMap<>(initialCapacity, loadFactor), false);
     }
 
     /**
@@ -107,23 +108,70 @@ public final class Settings implements EnhancedMap, DecorationAware {
      * @param initialCapacity
      */
     public Settings(int initialCapacity) {
-        backingMap = new HashMap<>(initialCapacity);
-        cleanable = CLEANER.register(this, finalizer);
+        this(new HashMap<>(initialCapacity), false);
     }
 
     /**
      * Uses the provided Map as backing map, throws an IllegalArgumentException
-     * if the map is an instance of EnhancedMap.
+     * if the map is an instance of EnhancedMap. When the map is a {@link ConcurrentMap} the settings will be
+     * {@link #concurrent() concurrent}.
      *
      * @param map
      */
     public Settings(Map<String, String[]> map) {
+        this(copy(map), map instanceof ConcurrentMap);
+    }
+
+    private static Map<String, String[]> copy(Map<String, String[]> map) {
         Objects.requireNonNull(map);
         if (map instanceof EnhancedMap) {
             throw new IllegalArgumentException("instance of " + EnhancedMap.class.getName() + " not allowed");
         }
-        backingMap = new HashMap<>(map);
-        cleanable = CLEANER.register(this, finalizer);
+        return map instanceof ConcurrentMap ? new ConcurrentHashMap<>(map) : new HashMap<>(map);
+    }
+
+    private Settings(Map<String, String[]> backingMap, boolean concurrent) {
+        this.backingMap = backingMap;
+        this.concurrent = concurrent;
+        if (concurrent) {
+            help = new ConcurrentHashMap<>(50);
+            decorators = new CopyOnWriteArrayList<>();
+        } else {
+            help = new HashMap<>(50);
+            decorators = new ArrayList<>(3);
+        }
+        usage = new UsageTracker(concurrent, defaultUsageTracking);
+        if (SettingsDiagnostics.isTrackAll()) {
+            SettingsDiagnostics.track(this);
+        }
+    }
+
+    /**
+     * Creates settings backed by a {@link ConcurrentHashMap}, usage tracking ({@link #getUnusedKeys() }, {@link #getKeysNotPresent() })
+     * is thread safe as well. Getters may be called from many threads without external locking, also while for example
+     * a {@link com.vectorprint.configuration.decoration.ReloadableProperties reload} writes. The id and the list of
+     * decorators are safe to read from other threads as well. Null keys and values are not supported.
+     *
+     * @return
+     */
+    public static Settings concurrent() {
+        return new Settings(new ConcurrentHashMap<>(), true);
+    }
+
+    /**
+     * @param initialCapacity
+     * @return
+     * @see #concurrent()
+     */
+    public static Settings concurrent(int initialCapacity) {
+        return new Settings(new ConcurrentHashMap<>(initialCapacity), true);
+    }
+
+    /**
+     * @return true when these settings are {@link #concurrent() concurrent}
+     */
+    public boolean isConcurrent() {
+        return concurrent;
     }
 
     private void debug(Object val, String... keys) {
@@ -161,8 +209,11 @@ public final class Settings implements EnhancedMap, DecorationAware {
 
     @Override
     public String[] get(Object key) {
-        unused.remove(key);
-        return backingMap.get(key);
+        String[] value = backingMap.get(key);
+        if (value != null || backingMap.containsKey(key)) {
+            usage.accessed(key);
+        }
+        return value;
     }
 
     private String getFirst(String key) {
@@ -205,25 +256,25 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public URL getURLProperty(URL defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), URL.class);
+        return key == null ? defaultValue : convert(key, URL.class);
     }
 
     @Override
     public File getFileProperty(File defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), File.class);
+        return key == null ? defaultValue : convert(key, File.class);
     }
 
     @Override
     public float getFloatProperty(Float defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Float.class);
+        return key == null ? defaultValue : convert(key, Float.class);
     }
 
     @Override
     public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Boolean.class);
+        return key == null ? defaultValue : convert(key, Boolean.class);
     }
 
     /**
@@ -265,6 +316,36 @@ public final class Settings implements EnhancedMap, DecorationAware {
      * @return the first key found in settings or null
      */
     private String determineKey(String... keys) {
+        LookupEvent event = beginLookup();
+        String key = findKey(keys);
+        lookedUp(event, key != null ? key : keys[0], key != null);
+        return key;
+    }
+
+    private static LookupEvent beginLookup() {
+        if (LookupEvent.enabled()) {
+            LookupEvent event = new LookupEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+
+    private void lookedUp(LookupEvent event, String key, boolean hit) {
+        SettingsStats s = stats;
+        if (s != null) {
+            s.lookup(hit);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.key = key;
+            event.hit = hit;
+            event.decoratorDepth = decorators.size();
+            event.settingsId = id.get();
+            event.commit();
+        }
+    }
+
+    private String findKey(String... keys) {
         if (keys == null || keys.length == 0 || keys[0] == null) {
             throw new VectorPrintRuntimeException("You should provide at least one key");
         }
@@ -273,10 +354,10 @@ public final class Settings implements EnhancedMap, DecorationAware {
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Returning key \"%s\" from %s, it was first found in settings", keys[0], Arrays.asList(keys)));
                 }
-                notPresent.remove(keys[0]);
+                usage.present(keys[0]);
                 return keys[0];
             } else {
-                notPresent.add(keys[0]);
+                usage.notPresent(keys[0]);
                 return null;
             }
         }
@@ -285,9 +366,9 @@ public final class Settings implements EnhancedMap, DecorationAware {
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Returning key \"%s\" from %s, it was first found in settings", k, Arrays.asList(keys)));
                 }
-                notPresent.remove(keys[0]);
+                usage.present(keys[0]);
                 return k;
-            } else notPresent.add(k);
+            } else usage.notPresent(k);
 
         }
         if (log.isDebugEnabled()) {
@@ -299,43 +380,43 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public double getDoubleProperty(Double defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Double.class);
+        return key == null ? defaultValue : convert(key, Double.class);
     }
 
     @Override
     public int getIntegerProperty(Integer defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Integer.class);
+        return key == null ? defaultValue : convert(key, Integer.class);
     }
 
     @Override
     public short getShortProperty(Short defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Short.class);
+        return key == null ? defaultValue : convert(key, Short.class);
     }
 
     @Override
     public char getCharProperty(Character defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Character.class);
+        return key == null ? defaultValue : convert(key, Character.class);
     }
 
     @Override
     public byte getByteProperty(Byte defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Byte.class);
+        return key == null ? defaultValue : convert(key, Byte.class);
     }
 
     @Override
     public long getLongProperty(Long defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Long.class);
+        return key == null ? defaultValue : convert(key, Long.class);
     }
 
     @Override
     public Color getColorProperty(Color defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Color.class);
+        return key == null ? defaultValue : convert(key, Color.class);
     }
 
     @Override
@@ -350,62 +431,62 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public URL[] getURLProperties(URL[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),URL.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, URL.class));
     }
 
     @Override
     public File[] getFileProperties(File[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),File.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, File.class));
     }
 
     @Override
     public float[] getFloatProperties(float[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseFloatValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseFloatValues);
     }
 
     @Override
     public char[] getCharProperties(char[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseCharValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseCharValues);
 
     }
 
     @Override
     public short[] getShortProperties(short[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseShortValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseShortValues);
     }
 
     @Override
     public byte[] getByteProperties(byte[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseByteValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseByteValues);
     }
 
     @Override
     public double[] getDoubleProperties(double[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseDoubleValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseDoubleValues);
     }
 
     @Override
     public int[] getIntegerProperties(int[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseIntValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseIntValues);
     }
 
     @Override
     public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseBooleanValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseBooleanValues);
     }
 
     @Override
     public Color[] getColorProperties(Color[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),Color.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, Color.class));
     }
 
     /**
@@ -429,7 +510,7 @@ public final class Settings implements EnhancedMap, DecorationAware {
             return false;
         }
         final Settings other = (Settings) obj;
-        if (!Objects.equals(this.id, other.id)) {
+        if (!Objects.equals(this.id.get(), other.id.get())) {
             return false;
         }
         return Objects.equals(backingMap, other.backingMap);
@@ -475,35 +556,37 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public long[] getLongProperties(long[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parseLongValues(get(key));
+        return key == null ? defaultValue : parseValues(key, AbstractBindingHelperDecorator::parseLongValues);
     }
 
     @Override
     public String[] put(String key, String[] value) {
-        if (!backingMap.containsKey(key)) unused.add(key);
-        return backingMap.put(key, value);
+        String[] old = backingMap.put(key, value);
+        version.incrementAndGet();
+        return old;
     }
 
     @Override
     public void clear() {
-        unused.clear();
-        notPresent.clear();
+        usage.clear();
         help.clear();
         decorators.clear();
         backingMap.clear();
+        version.incrementAndGet();
     }
 
     @Override
     public String[] remove(Object key) {
-        unused.remove(key);
-        return backingMap.remove(key);
+        usage.removed(key);
+        String[] old = backingMap.remove(key);
+        version.incrementAndGet();
+        return old;
     }
 
     private void init(Settings vp) {
         vp.help.putAll(help);
-        vp.unused.addAll(keySet());
-        vp.id = id;
-        vp.notPresent.addAll(notPresent);
+        vp.usage.init(usage);
+        vp.id.set(id.get());
         vp.decorators.addAll(decorators);
         vp.outermostDecorator = outermostDecorator;
     }
@@ -546,11 +629,11 @@ public final class Settings implements EnhancedMap, DecorationAware {
      */
     @Override
     public String getId() {
-        return id;
+        return id.get();
     }
 
     public void setId(String id) {
-        this.id = id;
+        this.id.set(id);
     }
 
     /**
@@ -571,16 +654,111 @@ public final class Settings implements EnhancedMap, DecorationAware {
         return getGenericProperty(key, defaultValue, clazz);
     }
 
-    private final AllowNoValue allowNoValue;
+    @Override
+    public int getInt(String key, int defaultValue) {
+        String v = getPrimitive(key);
+        try {
+            return v == null ? defaultValue : PrimitiveValues.parseInt(v);
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
 
-    {
-        allowNoValue = new AllowNoValue(this);
-        decorators.clear();
+    @Override
+    public long getLong(String key, long defaultValue) {
+        String v = getPrimitive(key);
+        try {
+            return v == null ? defaultValue : PrimitiveValues.parseLong(v);
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        String v = getPrimitive(key);
+        try {
+            return v == null ? defaultValue : PrimitiveValues.parseDouble(v);
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String v = getPrimitive(key);
+        try {
+            return v == null ? defaultValue : PrimitiveValues.parseBoolean(v);
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
+
+    private <T> T convert(String key, Class<T> clazz) {
+        return convert(key, clazz, getFactory().getBindingHelper());
+    }
+
+    private <T> T convert(String key, Class<T> clazz, BindingHelper helper) {
+        try {
+            return helper.convert(getFirst(key), clazz);
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
+
+    private <T> T parseValues(String key, Function<String[], T> parser) {
+        try {
+            return parser.apply(get(key));
+        } catch (RuntimeException e) {
+            throw conversionFailed(e);
+        }
+    }
+
+    private RuntimeException conversionFailed(RuntimeException e) {
+        SettingsStats s = stats;
+        if (s != null) {
+            s.conversionFailure();
+        }
+        return e;
+    }
+
+    @Override
+    public void setStats(SettingsStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * like {@link #getKey(java.lang.Object, java.lang.String...) } for one key, without varargs
+     *
+     * @param key
+     * @return the value or null when the key is not present or has no value
+     */
+    private String getPrimitive(String key) {
+        if (key == null) {
+            throw new VectorPrintRuntimeException("You should provide at least one key");
+        }
+        LookupEvent event = beginLookup();
+        boolean hit = containsKey(key);
+        lookedUp(event, key, hit);
+        if (!hit) {
+            usage.notPresent(key);
+            return null;
+        }
+        usage.present(key);
+        String v = getFirst(key);
+        return v == null || v.isEmpty() ? null : v;
     }
 
     @Override
     public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
-        return Optional.ofNullable(allowNoValue.getGenericProperty(null,clazz,keys));
+        Found<T> found = lookup(clazz, keys);
+        return found == null ? Optional.empty() : Optional.ofNullable(found.getValue());
+    }
+
+    @Override
+    public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+        String key = determineKey(keys);
+        return key == null ? null : new Found<>(getGenericProperty(key, null, clazz));
     }
 
     /**
@@ -595,52 +773,157 @@ public final class Settings implements EnhancedMap, DecorationAware {
      * defaultValue is null
      */
     private <T> T getGenericProperty(String key, T defaultValue, Class<T> clazz) {
+        return getGenericProperty(key, defaultValue, clazz, getFactory().getBindingHelper());
+    }
+
+    private <T> T getGenericProperty(String key, T defaultValue, Class<T> clazz, BindingHelper helper) {
         if (key == null) {
             return defaultValue;
         } else if (clazz.isArray()) {
             if (String[].class.equals(clazz)) {
                 return (T) get(key);
             }
-            return getFactory().getBindingHelper().convert(get(key), clazz);
+            return parseValues(key, v -> helper.convert(v, clazz));
         } else {
             if (String.class.equals(clazz)) {
                 return (T) getFirst(key);
             }
-            return getFactory().getBindingHelper().convert(getFirst(key), clazz);
+            return convert(key, clazz, helper);
         }
     }
 
+    @Override
+    public EnhancedMap subset(String prefix, boolean stripPrefix) {
+        return new SettingsSubset(this, prefix, stripPrefix);
+    }
+
+    /**
+     * Resolves all entries of the query in one pass, the {@link BindingHelper} is looked up once.
+     *
+     * @param query
+     * @return
+     */
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        BindingHelper helper = getFactory().getBindingHelper();
+        return new SettingsQuery.Result(query, version.get(), e -> resolve(e, query.isAllowNoValue(), helper));
+    }
+
+    private <T> T resolve(SettingsQuery.Entry<T> e, boolean allowNoValue, BindingHelper helper) {
+        String key = allowNoValue && e.getDefaultValue() == null
+                ? determineKey(e.getKeys())
+                : getKey(e.getDefaultValue(), e.getKeys());
+        return getGenericProperty(key, e.getDefaultValue(), e.getType(), helper);
+    }
+
     @Override
     public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), LocalDateTime.class);
+        return key == null ? defaultValue : convert(key, LocalDateTime.class);
     }
 
     @Override
     public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),LocalDateTime.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, LocalDateTime.class));
+    }
+
+    private final UsageTracker usage;
+
+    private static volatile UsageTracking defaultUsageTracking = UsageTracking.KEYS;
+
+    /**
+     * Set the {@link UsageTracking} for Settings created from now on, the default is {@link UsageTracking#KEYS}. Use
+     * {@link UsageTracking#NONE} in production to avoid any bookkeeping when reading settings.
+     *
+     * @param tracking
+     */
+    public static void setDefaultUsageTracking(UsageTracking tracking) {
+        defaultUsageTracking = Objects.requireNonNull(tracking);
+    }
+
+    public static UsageTracking getDefaultUsageTracking() {
+        return defaultUsageTracking;
     }
 
-    private final Collection<String> unused = new HashSet<>(25);
+    /**
+     * Change the {@link UsageTracking} for these settings, switching to {@link UsageTracking#NONE} discards usage
+     * information collected so far.
+     *
+     * @param tracking
+     */
+    public void setUsageTracking(UsageTracking tracking) {
+        usage.setTracking(Objects.requireNonNull(tracking));
+    }
+
+    public UsageTracking getUsageTracking() {
+        return usage.getTracking();
+    }
+
+    /**
+     * When {@link UsageTracking#ACCESS_COUNTS} is active returns the number of times each key was accessed.
+     *
+     * @return a copy of the access counts per key, empty when access counts are not tracked
+     */
+    public Map<String, Long> getAccessCounts() {
+        return usage.accessCounts();
+    }
 
+    /**
+     * Keys present that were never accessed, empty when {@link UsageTracking#NONE} is active.
+     *
+     * @return
+     */
     @Override
     public Collection<String> getUnusedKeys() {
-        unused.removeIf(s -> !containsKey(s));
-        return Collections.unmodifiableCollection(unused);
+        return usage.unused(keySet());
     }
 
-    private final Set<String> notPresent = new HashSet<>(25);
+    /**
+     * Supplies the id (class@hash when no id is set) and the {@link #getUnusedKeys() unused keys} of these settings
+     * without referencing these settings, so {@link SettingsDiagnostics} can still report unused keys after these
+     * settings are garbage collected.
+     *
+     * @return
+     */
+    public Supplier<Map.Entry<String, Collection<String>>> detachedUnusedKeys() {
+        AtomicReference<String> id = this.id;
+        UsageTracker usage = this.usage;
+        Set<String> keys = backingMap.keySet();
+        String name = getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(this));
+        return () -> Map.entry(id.get() != null ? id.get() : name, usage.unused(keys));
+    }
 
+    /**
+     * Keys looked for but not present, empty when {@link UsageTracking#NONE} is active.
+     *
+     * @return
+     */
     @Override
     public Collection<String> getKeysNotPresent() {
-        return Collections.unmodifiableCollection(notPresent);
+        return usage.notPresent();
     }
 
 
+    /**
+     * Incremented on every put, putAll, remove and clear. Changes made through {@link #keySet() }, {@link #values() }
+     * or {@link #entrySet() } are not counted.
+     *
+     * @return
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+        return new SettingKey<>(this, clazz, defaultValue, keys);
+    }
+
     @Override
     public String toString() {
-        return "Settings{" + "id=" + id + ", decorators=" + decorators + '}';
+        return "Settings{" + "id=" + id.get() + ", decorators=" + decorators + '}';
     }
     
     
@@ -655,19 +938,19 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public Class getClassProperty(Class defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Class.class);
+        return key == null ? defaultValue : convert(key, Class.class);
     }
 
     @Override
     public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : getFactory().getBindingHelper().convert(getFirst(key), Pattern.class);
+        return key == null ? defaultValue : convert(key, Pattern.class);
     }
 
     @Override
     public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),Pattern.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, Pattern.class));
     }
 
     /**
@@ -680,7 +963,7 @@ public final class Settings implements EnhancedMap, DecorationAware {
     @Override
     public Class[] getClassProperties(Class[] defaultValue, String... keys) {
         String key = getKey(defaultValue, keys);
-        return key == null ? defaultValue : AbstractBindingHelperDecorator.parse(get(key),Class.class);
+        return key == null ? defaultValue : parseValues(key, v -> AbstractBindingHelperDecorator.parse(v, Class.class));
     }
 
     @Override
@@ -743,10 +1026,8 @@ public final class Settings implements EnhancedMap, DecorationAware {
 
     @Override
     public void putAll(Map<? extends String, ? extends String[]> m) {
-        m.forEach((k, v) -> {
-            if (!backingMap.containsKey(k)) unused.add(k);
-        });
         backingMap.putAll(m);
+        version.incrementAndGet();
     }
 
     @Override
@@ -0,0 +1,212 @@
+package com.vectorprint.configuration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A bulk query for settings, add {@link Entry typed entries} and resolve them all in one call to
+ * {@link EnhancedMap#query(SettingsQuery) }. The decorator stack is traversed once for the whole query instead of once
+ * per setting. A query can be reused.
+ * <pre>
+ * SettingsQuery q = new SettingsQuery();
+ * SettingsQuery.Entry&lt;Integer&gt; size = q.add(Integer.class, 10, "size");
+ * SettingsQuery.Entry&lt;Color&gt; color = q.add(Color.class, null, "color", "defaultcolor");
+ * SettingsQuery.Result r = settings.query(q);
+ * int s = r.get(size);
+ * </pre>
+ */
+public final class SettingsQuery {
+
+    private final List<Entry<?>> entries;
+    private final boolean allowNoValue;
+
+    public SettingsQuery() {
+        this(new ArrayList<>(10), false);
+    }
+
+    private SettingsQuery(List<Entry<?>> entries, boolean allowNoValue) {
+        this.entries = entries;
+        this.allowNoValue = allowNoValue;
+    }
+
+    /**
+     * add a setting to the query
+     *
+     * @param <T>
+     * @param clazz the type of the setting
+     * @param defaultValue the default, null means a value is required unless {@link #isAllowNoValue() no value is allowed}
+     * @param keys the keys to look for, the first found is used
+     * @return the entry to use for retrieving the value from the {@link Result}
+     */
+    public <T> Entry<T> add(Class<T> clazz, T defaultValue, String... keys) {
+        if (keys == null || keys.length == 0 || keys[0] == null) {
+            throw new IllegalArgumentException("You should provide at least one key");
+        }
+        Entry<T> e = new Entry<>(entries.size(), Objects.requireNonNull(clazz), defaultValue, keys.clone());
+        entries.add(e);
+        return e;
+    }
+
+    public List<Entry<?>> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return all keys in this query
+     */
+    public Set<String> keys() {
+        Set<String> keys = new LinkedHashSet<>(entries.size() * 2);
+        entries.forEach(e -> keys.addAll(Arrays.asList(e.keys)));
+        return keys;
+    }
+
+    /**
+     * @return true when entries without a value and without a default will be null in the result instead of causing a
+     * {@link NoValueException}
+     */
+    public boolean isAllowNoValue() {
+        return allowNoValue;
+    }
+
+    /**
+     * @return a query with the same entries that {@link #isAllowNoValue() allows no value}
+     */
+    public SettingsQuery allowingNoValue() {
+        return allowNoValue ? this : new SettingsQuery(entries, true);
+    }
+
+    boolean contains(Entry<?> entry) {
+        return entry.index < entries.size() && entries.get(entry.index) == entry;
+    }
+
+    /**
+     * A typed setting in a query.
+     *
+     * @param <T>
+     */
+    public static final class Entry<T> {
+
+        private final int index;
+        private final Class<T> clazz;
+        private final T defaultValue;
+        private final String[] keys;
+
+        private Entry(int index, Class<T> clazz, T defaultValue, String[] keys) {
+            this.index = index;
+            this.clazz = clazz;
+            this.defaultValue = defaultValue;
+            this.keys = keys;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Class<T> getType() {
+            return clazz;
+        }
+
+        public T getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * @return the keys, do not modify
+         */
+        public String[] getKeys() {
+            return keys;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" + "clazz=" + clazz.getName() + ", keys=" + Arrays.toString(keys) + ", defaultValue=" + defaultValue + '}';
+        }
+    }
+
+    /**
+     * The values found for a query.
+     */
+    public static final class Result {
+
+        private final SettingsQuery query;
+        private final Object[] values;
+        private final long version;
+
+        /**
+         * For implementations of {@link EnhancedMap#query(SettingsQuery) }, calls the resolver for each entry in the
+         * order in which entries were added.
+         *
+         * @param query
+         * @param version the {@link EnhancedMap#getVersion() version} of the settings before resolving
+         * @param resolver
+         */
+        public Result(SettingsQuery query, long version, Function<Entry<?>, Object> resolver) {
+            this.query = query;
+            this.version = version;
+            values = new Object[query.entries.size()];
+            for (Entry<?> e : query.entries) {
+                values[e.index] = resolver.apply(e);
+            }
+        }
+
+        /**
+         * @param <T>
+         * @param entry
+         * @return the value of the entry, the default or null when no value is allowed
+         * @throws IllegalArgumentException when the entry is not part of the query
+         */
+        public <T> T get(Entry<T> entry) {
+            if (!query.contains(entry)) {
+                throw new IllegalArgumentException(entry + " not in query");
+            }
+            return (T) values[entry.index];
+        }
+
+        public SettingsQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the {@link EnhancedMap#getVersion() version} of the settings when the query was resolved
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" + "values=" + Arrays.toString(values) + ", version=" + version + '}';
+        }
+    }
+}
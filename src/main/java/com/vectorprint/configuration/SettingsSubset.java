@@ -0,0 +1,499 @@
+package com.vectorprint.configuration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.VectorPrintRuntimeException;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Serial;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A live view on the settings with keys starting with a prefix, see {@link EnhancedMap#subset(String, boolean) }. Keys
+ * are mapped to keys of the parent and all calls are delegated to the parent, so caches, interceptors and observers of
+ * the parent are shared and reloads are visible in the view. Keys of the view that are not in the parent's namespace
+ * are absent, typed getters and writes throw a {@link VectorPrintRuntimeException} for them. When the parent's keys are
+ * sorted, for example via {@link com.vectorprint.configuration.decoration.SortedProperties}, iterating the view only
+ * visits the keys in the namespace.
+ */
+public final class SettingsSubset extends AbstractMap<String, String[]> implements EnhancedMap {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+
+    private final EnhancedMap parent;
+    private final String prefix;
+    private final boolean strip;
+
+    /**
+     * @param parent the settings to view, normally the outermost decorator
+     * @param prefix for example "http.client."
+     * @param stripPrefix when true keys in the view are without the prefix
+     */
+    public SettingsSubset(EnhancedMap parent, String prefix, boolean stripPrefix) {
+        this.parent = parent;
+        this.prefix = prefix;
+        this.strip = stripPrefix;
+    }
+
+    /**
+     * @param key
+     * @return the key in the parent or null when the key is not in this view
+     */
+    private String parentKey(Object key) {
+        if (!(key instanceof String k)) {
+            return null;
+        }
+        return strip ? prefix.concat(k) : k.startsWith(prefix) ? k : null;
+    }
+
+    private String required(String key) {
+        String k = parentKey(key);
+        if (k == null) {
+            throw new VectorPrintRuntimeException(String.format("%s not in subset %s", key, prefix));
+        }
+        return k;
+    }
+
+    private String[] keys(String... keys) {
+        String[] rv = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rv[i] = required(keys[i]);
+        }
+        return rv;
+    }
+
+    private String viewKey(String parentKey) {
+        return strip ? parentKey.substring(prefix.length()) : parentKey;
+    }
+
+    /**
+     * @return the keys of the parent in the namespace
+     */
+    private Stream<String> parentKeys() {
+        Set<String> keys = parent.keySet();
+        return keys instanceof NavigableSet<String> sorted
+                ? sorted.tailSet(prefix, true).stream().takeWhile(k -> k.startsWith(prefix))
+                : keys.stream().filter(k -> k.startsWith(prefix));
+    }
+
+    @Override
+    public Set<Entry<String, String[]>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String[]>> iterator() {
+                return parentKeys().<Entry<String, String[]>>map(k -> new SimpleImmutableEntry<>(viewKey(k), parent.get(k))).iterator();
+            }
+
+            @Override
+            public int size() {
+                return SettingsSubset.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return parentKeys().map(SettingsSubset.this::viewKey).iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return SettingsSubset.this.size();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return (int) parentKeys().count();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parentKeys().findAny().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        String k = parentKey(key);
+        return k != null && parent.containsKey(k);
+    }
+
+    @Override
+    public String[] get(Object key) {
+        String k = parentKey(key);
+        return k == null ? null : parent.get(k);
+    }
+
+    @Override
+    public String[] put(String key, String[] value) {
+        return parent.put(required(key), value);
+    }
+
+    @Override
+    public String[] put(String key, String value) {
+        return parent.put(required(key), value);
+    }
+
+    @Override
+    public void put(Map<String, String> m) {
+        m.forEach(this::put);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String[]> m) {
+        m.forEach((k, v) -> put(k, v));
+    }
+
+    @Override
+    public String[] remove(Object key) {
+        String k = parentKey(key);
+        return k == null ? null : parent.remove(k);
+    }
+
+    @Override
+    public void clear() {
+        parentKeys().toList().forEach(parent::remove);
+    }
+
+    @Override
+    public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
+        return parent.getBooleanProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Class getClassProperty(Class defaultValue, String... keys) throws ClassNotFoundException {
+        return parent.getClassProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Class[] getClassProperties(Class[] defaultValue, String... keys) throws ClassNotFoundException {
+        return parent.getClassProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
+        return parent.getRegexProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
+        return parent.getRegexProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Color getColorProperty(Color defaultValue, String... keys) {
+        return parent.getColorProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public double getDoubleProperty(Double defaultValue, String... keys) {
+        return parent.getDoubleProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public short getShortProperty(Short defaultValue, String... keys) {
+        return parent.getShortProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public char getCharProperty(Character defaultValue, String... keys) {
+        return parent.getCharProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public byte getByteProperty(Byte defaultValue, String... keys) {
+        return parent.getByteProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public short[] getShortProperties(short[] defaultValue, String... keys) {
+        return parent.getShortProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public char[] getCharProperties(char[] defaultValue, String... keys) {
+        return parent.getCharProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public byte[] getByteProperties(byte[] defaultValue, String... keys) {
+        return parent.getByteProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public float getFloatProperty(Float defaultValue, String... keys) {
+        return parent.getFloatProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public int getIntegerProperty(Integer defaultValue, String... keys) {
+        return parent.getIntegerProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public long getLongProperty(Long defaultValue, String... keys) {
+        return parent.getLongProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public URL getURLProperty(URL defaultValue, String... keys) throws MalformedURLException {
+        return parent.getURLProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public File getFileProperty(File defaultValue, String... keys) {
+        return parent.getFileProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public File[] getFileProperties(File[] defaultValue, String... keys) {
+        return parent.getFileProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public String[] getStringProperties(String[] defaultValue, String... keys) {
+        return parent.getStringProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public URL[] getURLProperties(URL[] defaultValue, String... keys) throws MalformedURLException {
+        return parent.getURLProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public float[] getFloatProperties(float[] defaultValue, String... keys) {
+        return parent.getFloatProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public double[] getDoubleProperties(double[] defaultValue, String... keys) {
+        return parent.getDoubleProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public int[] getIntegerProperties(int[] defaultValue, String... keys) {
+        return parent.getIntegerProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public long[] getLongProperties(long[] defaultValue, String... keys) {
+        return parent.getLongProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
+        return parent.getBooleanProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public Color[] getColorProperties(Color[] defaultValue, String... keys) {
+        return parent.getColorProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
+        return parent.getLocalDateTimeProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
+        return parent.getLocalDateTimeProperties(defaultValue, keys(keys));
+    }
+
+    @Override
+    public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+        return parent.getGenericProperty(defaultValue, clazz, keys(keys));
+    }
+
+    @Override
+    public String getProperty(String defaultValue, String... keys) {
+        return parent.getProperty(defaultValue, keys(keys));
+    }
+
+    @Override
+    public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
+        return parent.getOptional(clazz, keys(keys));
+    }
+
+    @Override
+    public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+        return parent.lookup(clazz, keys(keys));
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return parent.getInt(required(key), defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return parent.getLong(required(key), defaultValue);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        return parent.getDouble(required(key), defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return parent.getBoolean(required(key), defaultValue);
+    }
+
+    @Override
+    public <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+        return parent.settingKey(clazz, defaultValue, keys(keys));
+    }
+
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        SettingsQuery mapped = new SettingsQuery();
+        query.getEntries().forEach(e -> mapped.add((Class) e.getType(), e.getDefaultValue(), keys(e.getKeys())));
+        SettingsQuery.Result r = parent.query(query.isAllowNoValue() ? mapped.allowingNoValue() : mapped);
+        List<SettingsQuery.Entry<?>> entries = r.getQuery().getEntries();
+        return new SettingsQuery.Result(query, r.getVersion(), e -> r.get(entries.get(e.getIndex())));
+    }
+
+    @Override
+    public PropertyHelp getHelp(String key) {
+        return parent.getHelp(required(key));
+    }
+
+    /**
+     * @return the help of the keys in this view
+     */
+    @Override
+    public Map<String, PropertyHelp> getHelp() {
+        Map<String, PropertyHelp> help = new HashMap<>();
+        parent.getHelp().forEach((k, v) -> {
+            if (k.startsWith(prefix)) {
+                help.put(viewKey(k), v);
+            }
+        });
+        return help;
+    }
+
+    @Override
+    public String printHelp() {
+        StringBuilder sb = new StringBuilder(1024);
+        getHelp().forEach((key, value) -> sb.append(key).append(": ").append(value.getType())
+                .append("; ")
+                .append(value.getExplanation())
+                .append(System.lineSeparator()));
+        return sb.toString();
+    }
+
+    @Override
+    public void listProperties(PrintStream ps) {
+        ps.printf("subset %s of settings with id %s:%n", prefix, getId());
+        ps.println();
+        forEach((key, value) -> ps.printf("%s=%s%n", key, value != null ? Arrays.asList(value) : ""));
+        ps.println();
+    }
+
+    /**
+     * Replaces the help of the keys in this view, help for other keys in the parent is kept.
+     *
+     * @param h
+     */
+    @Override
+    public void setHelp(Map<String, PropertyHelp> h) {
+        Map<String, PropertyHelp> help = new HashMap<>(parent.getHelp());
+        help.keySet().removeIf(k -> k.startsWith(prefix));
+        h.forEach((k, v) -> help.put(required(k), v));
+        parent.setHelp(help);
+    }
+
+    /**
+     * @return a view on a clone of the parent
+     * @throws CloneNotSupportedException
+     */
+    @Override
+    public EnhancedMap clone() throws CloneNotSupportedException {
+        return new SettingsSubset(parent.clone(), prefix, strip);
+    }
+
+    @Override
+    public Collection<String> getUnusedKeys() {
+        return parent.getUnusedKeys().stream().filter(k -> k.startsWith(prefix)).map(this::viewKey).toList();
+    }
+
+    @Override
+    public Collection<String> getKeysNotPresent() {
+        return parent.getKeysNotPresent().stream().filter(k -> k.startsWith(prefix)).map(this::viewKey).toList();
+    }
+
+    @Override
+    public String getId() {
+        return parent.getId();
+    }
+
+    @Override
+    public void setId(String id) {
+        parent.setId(id);
+    }
+
+    @Override
+    public long getVersion() {
+        return parent.getVersion();
+    }
+
+    @Override
+    public EnhancedMap subset(String prefix, boolean stripPrefix) {
+        return new SettingsSubset(this, prefix, stripPrefix);
+    }
+
+    public EnhancedMap getParent() {
+        return parent;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,152 @@
+package com.vectorprint.configuration;
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bookkeeping of key usage for {@link Settings}. Instead of removing a key from a set of unused keys on every lookup,
+ * the set of used keys is written only the first time a key is accessed, later accesses only read. Unused keys are
+ * calculated when asked for. Access counts are kept in striped counters ({@link LongAdder}).
+ */
+final class UsageTracker implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+
+    private final Set<String> used;
+    private final Set<String> notPresent;
+    private final Map<String, LongAdder> counts;
+    private volatile UsageTracking tracking;
+
+    UsageTracker(boolean concurrent, UsageTracking tracking) {
+        this.tracking = tracking;
+        if (concurrent) {
+            used = ConcurrentHashMap.newKeySet(25);
+            notPresent = ConcurrentHashMap.newKeySet(25);
+        } else {
+            used = new HashSet<>(25);
+            notPresent = new HashSet<>(25);
+        }
+        counts = new ConcurrentHashMap<>(25);
+    }
+
+    UsageTracking getTracking() {
+        return tracking;
+    }
+
+    void setTracking(UsageTracking tracking) {
+        this.tracking = tracking;
+        if (tracking != UsageTracking.ACCESS_COUNTS) {
+            counts.clear();
+        }
+        if (tracking == UsageTracking.NONE) {
+            used.clear();
+            notPresent.clear();
+        }
+    }
+
+    /**
+     * a key present in settings is accessed
+     *
+     * @param key
+     */
+    void accessed(Object key) {
+        UsageTracking t = tracking;
+        if (t == UsageTracking.NONE || !(key instanceof String k)) {
+            return;
+        }
+        if (t == UsageTracking.ACCESS_COUNTS) {
+            counts.computeIfAbsent(k, s -> new LongAdder()).increment();
+        }
+        if (!used.contains(k)) {
+            used.add(k);
+        }
+    }
+
+    void present(String key) {
+        if (tracking != UsageTracking.NONE && notPresent.contains(key)) {
+            notPresent.remove(key);
+        }
+    }
+
+    void notPresent(String key) {
+        if (tracking != UsageTracking.NONE && !notPresent.contains(key)) {
+            notPresent.add(key);
+        }
+    }
+
+    /**
+     * a key is removed from settings, when it is put again it will be unused
+     *
+     * @param key
+     */
+    void removed(Object key) {
+        used.remove(key);
+        counts.remove(key);
+    }
+
+    void clear() {
+        used.clear();
+        notPresent.clear();
+        counts.clear();
+    }
+
+    Collection<String> unused(Set<String> keys) {
+        if (tracking == UsageTracking.NONE) {
+            return Collections.emptyList();
+        }
+        Set<String> unused = new HashSet<>(keys);
+        unused.removeAll(used);
+        return Collections.unmodifiableCollection(unused);
+    }
+
+    Collection<String> notPresent() {
+        return Collections.unmodifiableCollection(notPresent);
+    }
+
+    Map<String, Long> accessCounts() {
+        Map<String, Long> m = new HashMap<>(counts.size());
+        counts.forEach((k, v) -> m.put(k, v.sum()));
+        return m;
+    }
+
+    /**
+     * copy the keys not present, used keys are not copied
+     *
+     * @param from
+     */
+    void init(UsageTracker from) {
+        tracking = from.tracking;
+        if (tracking != UsageTracking.NONE) {
+            notPresent.addAll(from.notPresent);
+        }
+    }
+}
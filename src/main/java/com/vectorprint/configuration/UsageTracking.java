@@ -0,0 +1,45 @@
+package com.vectorprint.configuration;
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Determines how {@link Settings} keep track of the usage of keys.
+ *
+ * @see Settings#setUsageTracking(UsageTracking)
+ * @see Settings#setDefaultUsageTracking(UsageTracking)
+ */
+public enum UsageTracking {
+    /**
+     * No bookkeeping at all on the read path, {@link EnhancedMap#getUnusedKeys() } and
+     * {@link EnhancedMap#getKeysNotPresent() } will be empty. Suitable for production.
+     */
+    NONE,
+    /**
+     * Keep track of used keys and of keys not present, the default.
+     */
+    KEYS,
+    /**
+     * Like {@link #KEYS}, in addition count the number of times each key is accessed, useful to find hot keys.
+     *
+     * @see Settings#getAccessCounts()
+     */
+    ACCESS_COUNTS
+}
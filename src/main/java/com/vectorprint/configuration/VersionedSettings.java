@@ -0,0 +1,557 @@
+package com.vectorprint.configuration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.configuration.decoration.AbstractPropertiesDecorator;
+import com.vectorprint.configuration.decoration.DecorationAware;
+
+import java.awt.*;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Serial;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Copy on write settings, reads are served from an immutable {@link FrozenSettings snapshot} that is replaced as a
+ * whole by a single volatile write. Every change publishes a new snapshot with a higher {@link #getVersion() version},
+ * readers never see a change half applied. Use {@link #pin() } for consistent reads of several keys and
+ * {@link #update(Changes) } to publish many changes as one version, a
+ * {@link com.vectorprint.configuration.decoration.ReloadableProperties reload} does this.
+ * <p>Writes are serialized and copy all settings, use this for read mostly settings.</p>
+ */
+public final class VersionedSettings extends AbstractMap<String, String[]> implements EnhancedMap, DecorationAware {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+    private volatile FrozenSettings current;
+    /**
+     * the last version published, guarded by this
+     */
+    private long version;
+    /**
+     * changes of a running {@link #update(Changes) }, guarded by this
+     */
+    private transient Settings staging;
+    private transient boolean staged;
+    /**
+     * actions to run when a running {@link #update(Changes) } is published, guarded by this
+     */
+    private transient List<Runnable> published;
+    private final List<Class<? extends AbstractPropertiesDecorator>> decorators = new CopyOnWriteArrayList<>();
+    private transient volatile AbstractPropertiesDecorator outermostDecorator;
+
+    /**
+     * Changes to apply in one version.
+     *
+     * @param <E>
+     */
+    @FunctionalInterface
+    public interface Changes<E extends Exception> {
+
+        void apply() throws E;
+    }
+
+    public VersionedSettings() {
+        this(new Settings());
+    }
+
+    /**
+     * @param settings the initial settings, copied into the first version
+     */
+    public VersionedSettings(EnhancedMap settings) {
+        version = 1;
+        current = new FrozenSettings(settings, version);
+    }
+
+    /**
+     * @return the current version, which will not change, for consistent reads of several keys
+     */
+    public FrozenSettings pin() {
+        return current;
+    }
+
+    /**
+     * Run changes and publish them as one version. Writes from the current thread during the changes, also those
+     * through decorators wrapping these settings, are collected and published when the changes are done. Other threads
+     * keep reading the previous version, their writes wait until the update is done. When the changes fail or nothing
+     * was written nothing is published. Decorators {@link #whenPublished(Runnable) notify} observers and invalidate
+     * caches after publication.
+     *
+     * @param <E>
+     * @param changes
+     * @throws E
+     */
+    public <E extends Exception> void update(Changes<E> changes) throws E {
+        stage(changes).forEach(Runnable::run);
+    }
+
+    private synchronized <E extends Exception> List<Runnable> stage(Changes<E> changes) throws E {
+        if (staging != null) {
+            changes.apply();
+            return List.of();
+        }
+        staging = thaw();
+        staged = false;
+        published = new ArrayList<>();
+        try {
+            changes.apply();
+            if (staged) {
+                publish(staging);
+                return published;
+            }
+            return List.of();
+        } finally {
+            staging = null;
+            published = null;
+        }
+    }
+
+    /**
+     * Run an action when changes written by the current thread are visible to readers, that is after the running
+     * {@link #update(Changes) } is published or now when no update is running. Actions of an update that fails or
+     * writes nothing are dropped.
+     *
+     * @param action
+     */
+    public void whenPublished(Runnable action) {
+        synchronized (this) {
+            if (published != null) {
+                published.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private synchronized <R> R write(Function<Settings, R> change) {
+        if (staging != null) {
+            staged = true;
+            return change.apply(staging);
+        }
+        Settings s = thaw();
+        R r = change.apply(s);
+        publish(s);
+        return r;
+    }
+
+    private Settings thaw() {
+        FrozenSettings c = current;
+        Settings s = new Settings();
+        s.setUsageTracking(UsageTracking.NONE);
+        s.putAll(c);
+        s.setId(c.getId());
+        s.setHelp(c.getHelp());
+        return s;
+    }
+
+    private void publish(Settings s) {
+        current = new FrozenSettings(s, ++version);
+    }
+
+    /**
+     * @return the number of the current version, it increases with every change
+     */
+    @Override
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    @Override
+    public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
+        return current.getBooleanProperty(defaultValue, keys);
+    }
+
+    @Override
+    public Class getClassProperty(Class defaultValue, String... keys) throws ClassNotFoundException {
+        return current.getClassProperty(defaultValue, keys);
+    }
+
+    @Override
+    public Class[] getClassProperties(Class[] defaultValue, String... keys) throws ClassNotFoundException {
+        return current.getClassProperties(defaultValue, keys);
+    }
+
+    @Override
+    public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
+        return current.getRegexProperty(defaultValue, keys);
+    }
+
+    @Override
+    public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
+        return current.getRegexProperties(defaultValue, keys);
+    }
+
+    @Override
+    public Color getColorProperty(Color defaultValue, String... keys) {
+        return current.getColorProperty(defaultValue, keys);
+    }
+
+    @Override
+    public double getDoubleProperty(Double defaultValue, String... keys) {
+        return current.getDoubleProperty(defaultValue, keys);
+    }
+
+    @Override
+    public short getShortProperty(Short defaultValue, String... keys) {
+        return current.getShortProperty(defaultValue, keys);
+    }
+
+    @Override
+    public char getCharProperty(Character defaultValue, String... keys) {
+        return current.getCharProperty(defaultValue, keys);
+    }
+
+    @Override
+    public byte getByteProperty(Byte defaultValue, String... keys) {
+        return current.getByteProperty(defaultValue, keys);
+    }
+
+    @Override
+    public short[] getShortProperties(short[] defaultValue, String... keys) {
+        return current.getShortProperties(defaultValue, keys);
+    }
+
+    @Override
+    public char[] getCharProperties(char[] defaultValue, String... keys) {
+        return current.getCharProperties(defaultValue, keys);
+    }
+
+    @Override
+    public byte[] getByteProperties(byte[] defaultValue, String... keys) {
+        return current.getByteProperties(defaultValue, keys);
+    }
+
+    @Override
+    public float getFloatProperty(Float defaultValue, String... keys) {
+        return current.getFloatProperty(defaultValue, keys);
+    }
+
+    @Override
+    public int getIntegerProperty(Integer defaultValue, String... keys) {
+        return current.getIntegerProperty(defaultValue, keys);
+    }
+
+    @Override
+    public long getLongProperty(Long defaultValue, String... keys) {
+        return current.getLongProperty(defaultValue, keys);
+    }
+
+    @Override
+    public String getProperty(String defaultValue, String... keys) {
+        return current.getProperty(defaultValue, keys);
+    }
+
+    @Override
+    public URL getURLProperty(URL defaultValue, String... keys) throws MalformedURLException {
+        return current.getURLProperty(defaultValue, keys);
+    }
+
+    @Override
+    public File getFileProperty(File defaultValue, String... keys) {
+        return current.getFileProperty(defaultValue, keys);
+    }
+
+    @Override
+    public File[] getFileProperties(File[] defaultValue, String... keys) {
+        return current.getFileProperties(defaultValue, keys);
+    }
+
+    @Override
+    public String[] getStringProperties(String[] defaultValue, String... keys) {
+        return current.getStringProperties(defaultValue, keys);
+    }
+
+    @Override
+    public URL[] getURLProperties(URL[] defaultValue, String... keys) throws MalformedURLException {
+        return current.getURLProperties(defaultValue, keys);
+    }
+
+    @Override
+    public float[] getFloatProperties(float[] defaultValue, String... keys) {
+        return current.getFloatProperties(defaultValue, keys);
+    }
+
+    @Override
+    public double[] getDoubleProperties(double[] defaultValue, String... keys) {
+        return current.getDoubleProperties(defaultValue, keys);
+    }
+
+    @Override
+    public int[] getIntegerProperties(int[] defaultValue, String... keys) {
+        return current.getIntegerProperties(defaultValue, keys);
+    }
+
+    @Override
+    public long[] getLongProperties(long[] defaultValue, String... keys) {
+        return current.getLongProperties(defaultValue, keys);
+    }
+
+    @Override
+    public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
+        return current.getBooleanProperties(defaultValue, keys);
+    }
+
+    @Override
+    public Color[] getColorProperties(Color[] defaultValue, String... keys) {
+        return current.getColorProperties(defaultValue, keys);
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
+        return current.getLocalDateTimeProperty(defaultValue, keys);
+    }
+
+    @Override
+    public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
+        return current.getLocalDateTimeProperties(defaultValue, keys);
+    }
+
+    @Override
+    public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+        return current.getGenericProperty(defaultValue, clazz, keys);
+    }
+
+    @Override
+    public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
+        return current.getOptional(clazz, keys);
+    }
+
+    @Override
+    public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+        return current.lookup(clazz, keys);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return current.getInt(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return current.getLong(key, defaultValue);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        return current.getDouble(key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return current.getBoolean(key, defaultValue);
+    }
+
+    @Override
+    public PropertyHelp getHelp(String key) {
+        return current.getHelp(key);
+    }
+
+    @Override
+    public Map<String, PropertyHelp> getHelp() {
+        return current.getHelp();
+    }
+
+    @Override
+    public String printHelp() {
+        return current.printHelp();
+    }
+
+    @Override
+    public String getId() {
+        return current.getId();
+    }
+
+    @Override
+    public EnhancedMap subset(String prefix, boolean stripPrefix) {
+        return new SettingsSubset(this, prefix, stripPrefix);
+    }
+
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        return current.query(query);
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return current.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return current.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return current.containsValue(value);
+    }
+
+    @Override
+    public String[] get(Object key) {
+        return current.get(key);
+    }
+
+    /**
+     * @return the entries of the current version, which does not change
+     */
+    @Override
+    public Set<Entry<String, String[]>> entrySet() {
+        return current.entrySet();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return current.keySet();
+    }
+
+    @Override
+    public Collection<String[]> values() {
+        return current.values();
+    }
+
+    @Override
+    public void listProperties(PrintStream ps) {
+        FrozenSettings c = current;
+        ps.printf("version %s of settings:%n", c.getVersion());
+        c.listProperties(ps);
+    }
+
+    @Override
+    public Collection<String> getUnusedKeys() {
+        return current.getUnusedKeys();
+    }
+
+    @Override
+    public Collection<String> getKeysNotPresent() {
+        return current.getKeysNotPresent();
+    }
+
+    @Override
+    public String[] put(String key, String value) {
+        return write(s -> s.put(key, value));
+    }
+
+    @Override
+    public String[] put(String key, String[] value) {
+        return write(s -> s.put(key, value));
+    }
+
+    @Override
+    public void put(Map<String, String> m) {
+        write(s -> {
+            s.put(m);
+            return null;
+        });
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String[]> m) {
+        write(s -> {
+            s.putAll(m);
+            return null;
+        });
+    }
+
+    @Override
+    public String[] remove(Object key) {
+        return write(s -> s.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        write(s -> {
+            s.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public void setId(String id) {
+        write(s -> {
+            s.setId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void setHelp(Map<String, PropertyHelp> h) {
+        write(s -> {
+            s.setHelp(h);
+            return null;
+        });
+    }
+
+    /**
+     * @return new versioned settings starting with the current version of these settings
+     */
+    @Override
+    public VersionedSettings clone() {
+        return new VersionedSettings(current);
+    }
+
+    @Override
+    public <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+        return new SettingKey<>(this, clazz, defaultValue, keys);
+    }
+
+    @Override
+    public void addDecorator(Class<? extends AbstractPropertiesDecorator> clazz) {
+        decorators.add(clazz);
+    }
+
+    @Override
+    public List<Class<? extends AbstractPropertiesDecorator>> getDecorators() {
+        return decorators;
+    }
+
+    @Override
+    public AbstractPropertiesDecorator getOutermostDecorator() {
+        return outermostDecorator;
+    }
+
+    @Override
+    public void setOutermostDecorator(AbstractPropertiesDecorator outermostDecorator) {
+        this.outermostDecorator = outermostDecorator;
+    }
+
+    @Override
+    public String toString() {
+        return "VersionedSettings{" + "current=" + current + '}';
+    }
+}
@@ -48,6 +48,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -178,7 +179,8 @@ public class SettingsAnnotationProcessorImpl implements SettingsAnnotationProces
                      if (notifyWrapping) {
                         LOGGER.warn(String.format("wrapping %s in %s, you should use the wrapper", settings.getClass().getName(), CachingProperties.class.getName()));
                      }
-                     settings = new CachingProperties(settings);
+                     settings = new CachingProperties(settings, se.cacheEviction(), se.cacheMaximum(), se.cacheWeighed(),
+                         Duration.ofMillis(se.cacheTtl()));
                   }
                }
                for (Feature feat : se.features()) {
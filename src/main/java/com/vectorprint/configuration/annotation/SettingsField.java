@@ -24,6 +24,7 @@ package com.vectorprint.configuration.annotation;
 
 import com.vectorprint.configuration.binding.settings.SettingsBindingService;
 import com.vectorprint.configuration.decoration.CachingProperties;
+import com.vectorprint.configuration.decoration.EvictionPolicy;
 import com.vectorprint.configuration.decoration.ObservableProperties;
 import com.vectorprint.configuration.decoration.ParsingProperties;
 import com.vectorprint.configuration.decoration.ReadonlyProperties;
@@ -57,6 +58,36 @@ public @interface SettingsField {
     */
    boolean cache() default true;
 
+   /**
+    * The maximum number of entries in the {@link CachingProperties cache}, or the maximum estimated size in bytes when
+    * {@link #cacheWeighed() weighed}, 0 means unbounded.
+    *
+    * @return
+    */
+   long cacheMaximum() default 0;
+
+   /**
+    * How to choose the entry to evict from a full cache.
+    *
+    * @see #cacheMaximum()
+    * @return
+    */
+   EvictionPolicy cacheEviction() default EvictionPolicy.LRU;
+
+   /**
+    * When true the {@link #cacheMaximum() } is in estimated bytes of the values cached.
+    *
+    * @return
+    */
+   boolean cacheWeighed() default false;
+
+   /**
+    * Time to live in milliseconds of cached values, 0 means forever.
+    *
+    * @return
+    */
+   long cacheTtl() default 0;
+
    /**
     * by default settings will not be {@link com.vectorprint.configuration.decoration.ReloadableProperties reloadable}.
     *
@@ -28,6 +28,7 @@ import com.vectorprint.StringConverter;
 import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.binding.parameters.ParameterizableBindingFactory;
 import com.vectorprint.configuration.binding.settings.EnhancedMapBindingFactory;
+import com.vectorprint.configuration.jfr.ConversionEvent;
 
 import java.awt.*;
 import java.util.Arrays;
@@ -55,6 +56,21 @@ public class BindingHelperImpl implements BindingHelper {
     */
    @Override
    public <T> T convert(String[] values, Class<T> clazz) {
+      if (!ConversionEvent.enabled()) {
+         return convertValues(values, clazz);
+      }
+      ConversionEvent event = new ConversionEvent();
+      event.begin();
+      T t = convertValues(values, clazz);
+      if (event.shouldCommit()) {
+         event.targetType = clazz;
+         event.values = values == null ? 0 : values.length;
+         event.commit();
+      }
+      return t;
+   }
+
+   private <T> T convertValues(String[] values, Class<T> clazz) {
       if (values == null || values.length == 0) {
          return null;
       }
@@ -103,6 +119,21 @@ public class BindingHelperImpl implements BindingHelper {
     */
    @Override
    public <T> T convert(String value, Class<T> clazz) {
+      if (!ConversionEvent.enabled()) {
+         return convertValue(value, clazz);
+      }
+      ConversionEvent event = new ConversionEvent();
+      event.begin();
+      T t = convertValue(value, clazz);
+      if (event.shouldCommit()) {
+         event.targetType = clazz;
+         event.values = value == null ? 0 : 1;
+         event.commit();
+      }
+      return t;
+   }
+
+   private <T> T convertValue(String value, Class<T> clazz) {
       if (value == null || value.isEmpty()) {
          return null;
       }
@@ -47,13 +47,29 @@ public class SettingsBindingService {
       return instance;
    }
 
+   private volatile EnhancedMapBindingFactory factory;
+
    /**
     * Return the first implementation of {@link EnhancedMapBindingFactory} found that is valid according to all
     * {@link SettingsFactoryValidator}s, or return null. When no validator is published return the first {@link EnhancedMapBindingFactory} found.
+    * The factory found is remembered, this method is called for every setting converted and may be called from many threads.
     *
     * @return
     */
    public EnhancedMapBindingFactory getFactory() {
+      EnhancedMapBindingFactory f = factory;
+      if (f == null) {
+         synchronized (this) {
+            if (factory == null) {
+               factory = findFactory();
+            }
+            f = factory;
+         }
+      }
+      return f;
+   }
+
+   private EnhancedMapBindingFactory findFactory() {
       for (EnhancedMapBindingFactory f : factories) {
          if (isValid(f)) {
             return f;
@@ -62,7 +78,7 @@ public class SettingsBindingService {
       return null;
    }
    
-   public boolean isValid(EnhancedMapBindingFactory f ) {
+   public synchronized boolean isValid(EnhancedMapBindingFactory f ) {
          boolean ok = true;
          for (SettingsFactoryValidator validator : validators) {
             if (!validator.isValid(f)) {
@@ -80,7 +96,7 @@ public class SettingsBindingService {
     * 
     * @return a list of factories found through SPI
     */
-   public List<Class<? extends EnhancedMapBindingFactory>> getFactoriesKnown() {
+   public synchronized List<Class<? extends EnhancedMapBindingFactory>> getFactoriesKnown() {
       List<Class<? extends EnhancedMapBindingFactory>> l = new ArrayList<>();
       for (EnhancedMapBindingFactory f : factories) {
          l.add(f.getClass());
@@ -92,7 +108,7 @@ public class SettingsBindingService {
     * 
     * @return a list of valid factories found through SPI
     */
-   public List<Class<? extends EnhancedMapBindingFactory>> getValidFactories() {
+   public synchronized List<Class<? extends EnhancedMapBindingFactory>> getValidFactories() {
       List<Class<? extends EnhancedMapBindingFactory>> l = new ArrayList<>();
       for (EnhancedMapBindingFactory f : factories) {
          if (isValid(f)) {
@@ -106,7 +122,7 @@ public class SettingsBindingService {
     * 
     * @return a list of validators found through SPI
     */
-   public List<Class<? extends SettingsFactoryValidator>> getValidatorsKnown() {
+   public synchronized List<Class<? extends SettingsFactoryValidator>> getValidatorsKnown() {
       List<Class<? extends SettingsFactoryValidator>> l = new ArrayList<>();
       for (SettingsFactoryValidator f : validators) {
          l.add(f.getClass());
@@ -28,8 +28,11 @@ import com.vectorprint.configuration.EnhancedMap;
 import com.vectorprint.configuration.binding.BindingHelper;
 import com.vectorprint.configuration.binding.settings.SettingsBindingService;
 import com.vectorprint.configuration.decoration.AbstractPropertiesDecorator;
+import com.vectorprint.configuration.decoration.ChangeSetEvent;
+import com.vectorprint.configuration.decoration.KeyTrie;
 import com.vectorprint.configuration.decoration.visiting.CacheClearingVisitor;
 import com.vectorprint.configuration.decoration.visiting.ObservableVisitor;
+import com.vectorprint.configuration.jfr.PropertyChangedEvent;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Default;
 import jakarta.enterprise.inject.Produces;
@@ -57,11 +60,10 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
@@ -86,16 +88,10 @@ public class CDIProperties extends AbstractPropertiesDecorator implements Proper
         ((AbstractPropertiesDecorator) settings).accept(new ObservableVisitor(this));
     }
 
-    private final Map<String, List<InjectionPoint>> injectionPoints
-            = new HashMap<String, List<InjectionPoint>>(100) {
-        @Override
-        public List<InjectionPoint> get(Object key) {
-            if (!containsKey(key)) {
-                put((String) key, new ArrayList<>(3));
-            }
-            return super.get(key);
-        }
-    };
+    /**
+     * updatable injection points by key
+     */
+    private final KeyTrie<InjectionPoint> injectionPoints = new KeyTrie<>();
 
     private boolean isUpdatable(InjectionPoint ip) {
         Bean<?> bean = ip.getBean();
@@ -118,7 +114,7 @@ public class CDIProperties extends AbstractPropertiesDecorator implements Proper
         final Property property = fromIp(ip);
         String[] rv = names(ip, property);
         if (property.updatable() && isUpdatable(ip)) {
-            Arrays.stream(rv).forEach(a -> injectionPoints.get(a).add(ip));
+            Arrays.stream(rv).forEach(a -> injectionPoints.add(a, ip));
         }
         // TODO here we could log/register where in the application properties are injected
         return rv;
@@ -139,7 +135,7 @@ public class CDIProperties extends AbstractPropertiesDecorator implements Proper
                 : ip.getAnnotated().getAnnotation(Property.class);
     }
 
-    private Object getDefault(final InjectionPoint ip) {
+    static Object getDefault(final InjectionPoint ip) {
         Class clazz = (Class) ip.getAnnotated().getBaseType();
         String[] defaultValue = fromIp(ip).defaultValue();
         if (defaultValue.length > 0) {
@@ -418,18 +414,46 @@ public class CDIProperties extends AbstractPropertiesDecorator implements Proper
         return super.clone();
     }
 
-    private static final CacheClearingVisitor CACHE_CLEARING_VISITOR
-            = new CacheClearingVisitor();
-
     @Override
     public void propertyChange(PropertyChangeEvent propertyChangeEvent) {
+        Collection<PropertyChangeEvent> changes = propertyChangeEvent instanceof ChangeSetEvent cs
+                ? cs.getChanges() : List.of(propertyChangeEvent);
+        if (!PropertyChangedEvent.enabled()) {
+            updateInjectionPoints(changes);
+            return;
+        }
+        PropertyChangedEvent event = new PropertyChangedEvent();
+        event.begin();
+        int updated = updateInjectionPoints(changes);
+        if (event.shouldCommit()) {
+            event.key = propertyChangeEvent instanceof ChangeSetEvent cs
+                    ? String.join(",", cs.getKeys()) : propertyChangeEvent.getPropertyName();
+            event.injectionPoints = updated;
+            event.commit();
+        }
+    }
+
+    /**
+     * update the injection points of all changes, then clear cached values of the changed keys in one go
+     */
+    private int updateInjectionPoints(Collection<PropertyChangeEvent> changes) {
+        int updated = 0;
+        for (PropertyChangeEvent change : changes) {
+            updated += updateInjectionPoints(change);
+        }
+        accept(new CacheClearingVisitor(changes.stream().map(PropertyChangeEvent::getPropertyName).toArray(String[]::new)));
+        return updated;
+    }
+
+    private int updateInjectionPoints(PropertyChangeEvent propertyChangeEvent) {
         /*
         via the changes and injection points we should be able to set
         new values
          */
 
         String c = propertyChangeEvent.getPropertyName();
-        injectionPoints.get(c).forEach(ip -> {
+        Set<InjectionPoint> ips = injectionPoints.match(c);
+        ips.forEach(ip -> {
             // if bean is null issue a warning, injectionpoint is not in a bean (i.e. webservlet)
             Class bc = ip.getMember().getDeclaringClass();
             Object reference = CDI.current().select(bc).get();
@@ -439,7 +463,7 @@ public class CDIProperties extends AbstractPropertiesDecorator implements Proper
                 update(ip, reference, (String[]) propertyChangeEvent.getNewValue());
             }
         });
-        accept(CACHE_CLEARING_VISITOR);
+        return ips.size();
     }
 
     private void update(InjectionPoint ip, Object reference, String... strValue) {
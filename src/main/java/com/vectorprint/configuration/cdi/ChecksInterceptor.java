@@ -15,6 +15,7 @@
  */
 package com.vectorprint.configuration.cdi;
 
+import com.vectorprint.configuration.EnhancedMap;
 import com.vectorprint.configuration.NoValueException;
 import jakarta.annotation.Priority;
 import jakarta.enterprise.inject.spi.InjectionPoint;
@@ -47,6 +48,11 @@ class ChecksInterceptor {
        final Property property = CDIProperties.fromIp(ip);
        if (property != null) {
            final boolean required = property.required();
+           if (!required && ctx.getTarget() instanceof EnhancedMap settings && CDIProperties.getDefault(ip) == null
+                   && settings.lookup(String[].class, CDIProperties.names(ip, property)) == null) {
+               // optional and absent, skip the producer to avoid a NoValueException
+               return null;
+           }
            try {
                return ctx.proceed();
            } catch (NoValueException ex) { // thrown by Settings#handleNoValue
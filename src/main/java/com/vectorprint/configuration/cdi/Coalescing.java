@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 VectorPrint.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vectorprint.configuration.cdi;
+
+/*
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jakarta.inject.Qualifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotate a method with {@link jakarta.enterprise.inject.Produces} and this annotation in an application scoped bean
+ * that will return a boolean indicating changes found by auto reloading should be coalesced and delivered asynchronously,
+ * see {@link com.vectorprint.configuration.decoration.ObservableProperties#ObservableProperties(com.vectorprint.configuration.EnhancedMap, java.util.concurrent.Executor, int)}.
+ * Producing this is optional, by default injected properties are updated synchronously.
+ * @author Eduard Drenth at VectorPrint.nl
+ */
+@Qualifier
+@Retention(RUNTIME)
+@Target({ElementType.METHOD,ElementType.PARAMETER})
+public @interface Coalescing {
+
+}
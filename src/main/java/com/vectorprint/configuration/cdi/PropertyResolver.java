@@ -24,6 +24,7 @@ import com.vectorprint.configuration.decoration.ObservableProperties;
 import com.vectorprint.configuration.decoration.ParsingProperties;
 import com.vectorprint.configuration.decoration.ReloadableProperties;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.Produces;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,13 +53,15 @@ public class PropertyResolver {
      * @param autoReload     create an application scoped bean to produce this
      *                       argument, when true autoreload properties
      * @param interval       poll interval in millisecond when autoreload is true
+     * @param coalescing     optionally produce this argument, when true changes found by autoreload are coalesced and
+     *                       delivered asynchronously
      * @throws Exception
      * @see StringConverter.URLParser
      */
     @Produces
     @PropertyProducer
-    public EnhancedMap initSettings(@FromJar Boolean fromJar, @AutoReload boolean autoReload, @POLL_INTERVAL int interval, @ConfigFileUrls String... configFileUrls) throws Exception {
-        return readAsSettingsOrProperties(fromJar, autoReload, interval, configFileUrls);
+    public EnhancedMap initSettings(@FromJar Boolean fromJar, @AutoReload boolean autoReload, @POLL_INTERVAL int interval, @Coalescing Instance<Boolean> coalescing, @ConfigFileUrls String... configFileUrls) throws Exception {
+        return readAsSettingsOrProperties(fromJar, autoReload, interval, coalescing.isResolvable() && coalescing.get(), configFileUrls);
     }
 
     /**
@@ -68,15 +71,18 @@ public class PropertyResolver {
      * @param fromJar    when true read from jar in classpath
      * @param autoReload when true and fromJar is changes in the property file will be propagated to injected properties
      * @param interval seconds to check for changes in the property file
+     * @param coalescing when true observers are notified asynchronously of coalesced changes
      * @param urls
      * @return
      * @throws VectorPrintException
      * @throws IOException
      */
-    private EnhancedMap readAsSettingsOrProperties(boolean fromJar, boolean autoReload, int interval, String... urls) throws Exception {
+    private EnhancedMap readAsSettingsOrProperties(boolean fromJar, boolean autoReload, int interval, boolean coalescing, String... urls) throws Exception {
         return fromJar || !autoReload ?
                 new CachingProperties(new ParsingProperties(new Settings(), urls)) :
                 new CachingProperties(
-                        new ReloadableProperties(new ObservableProperties(new Settings()), interval, urls));
+                        new ReloadableProperties(coalescing ?
+                                new ObservableProperties(new Settings(), null, ObservableProperties.DEFAULT_CAPACITY) :
+                                new ObservableProperties(new Settings()), interval, urls));
     }
 }
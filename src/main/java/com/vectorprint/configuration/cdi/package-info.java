@@ -17,7 +17,8 @@
  * This package contains a setup for applications to retrieve application properties
  * from an external Url or from a jar. Users need to provide urls, a boolean "fromJar" and a boolean "autoReload" via
  * an application scoped cdi bean that produces these, see {@link com.vectorprint.configuration.cdi.ConfigFileUrls},
- * {@link com.vectorprint.configuration.cdi.FromJar} and {@link com.vectorprint.configuration.cdi.AutoReload}. Properties can than
+ * {@link com.vectorprint.configuration.cdi.FromJar} and {@link com.vectorprint.configuration.cdi.AutoReload}, optionally
+ * {@link com.vectorprint.configuration.cdi.Coalescing} for asynchronous updates after a reload. Properties can than
  * be injected using Inject and {@link com.vectorprint.configuration.cdi.Property} and {@link com.vectorprint.configuration.cdi.Properties} annotations. The underlying configuration library
  * offers many features, such as support for data types, caching, reloadability, observablility, readonliness, threadsafety, helpsupport,
  * reading from input / writing to output, sorting.
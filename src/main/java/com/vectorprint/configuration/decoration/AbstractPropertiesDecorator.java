@@ -23,8 +23,14 @@ package com.vectorprint.configuration.decoration;
 
 import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.Found;
 import com.vectorprint.configuration.PropertyHelp;
+import com.vectorprint.configuration.SettingKey;
+import com.vectorprint.configuration.SettingsQuery;
+import com.vectorprint.configuration.SettingsSubset;
+import com.vectorprint.configuration.VersionedSettings;
 import com.vectorprint.configuration.annotation.SettingsAnnotationProcessorImpl;
+import com.vectorprint.configuration.decoration.visiting.AbstractVisitor;
 import com.vectorprint.configuration.decoration.visiting.DecoratorVisitor;
 import jakarta.validation.constraints.NotNull;
 import org.slf4j.Logger;
@@ -34,20 +40,34 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public abstract class AbstractPropertiesDecorator implements EnhancedMap, DecorationAware {
 
     private EnhancedMap settings;
+    /**
+     * the first map in the stack that overrides reads, pass-through layers in between are skipped
+     */
+    private EnhancedMap reader;
+    private transient volatile StackIndex index;
+    /**
+     * true when the settings beneath are shared with other decorators
+     */
+    private final boolean shared;
     private AbstractPropertiesDecorator outermostDecorator;
     private final List<Class<? extends AbstractPropertiesDecorator>> decorators = new ArrayList<>(2);
     protected static final Logger log = LoggerFactory.getLogger(AbstractPropertiesDecorator.class.getName());
@@ -62,15 +82,43 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
      * decorator.
      */
     public AbstractPropertiesDecorator(EnhancedMap settings) {
+        this(settings, false);
+    }
+
+    /**
+     * For decorators over settings shared with other decorators, when shared the decorator does not call
+     * {@link DecorationAware#addDecorator(java.lang.Class) } and
+     * {@link DecorationAware#setOutermostDecorator(com.vectorprint.configuration.decoration.AbstractPropertiesDecorator) }
+     * on the settings beneath, so these settings are not changed by decorating them. Decorators put on top of a shared
+     * decorator do not register beneath it either.
+     *
+     * @param settings may not be null
+     * @param shared
+     * @see OverlayProperties
+     */
+    protected AbstractPropertiesDecorator(EnhancedMap settings, boolean shared) {
         if (settings == null) {
             throw new VectorPrintRuntimeException("settings may not be null");
         }
-        if (hasProperties(settings.getClass())) {
+        if (settings.getClass().isInstance(this)) {
             throw new VectorPrintRuntimeException(String.format("%s already in the stack", settings.getClass().getName()));
         }
         this.settings = settings;
-        accept(new Hiding(this));
-        accept(new DecoratorOveriew(getDecorationAwares()));
+        this.shared = shared;
+        this.reader = fuse(settings);
+        this.index = new StackIndex(this, settings, shared);
+        for (HiddenBy h : index.layers(HiddenBy.class)) {
+            if (h.hiddenBy(getClass())) {
+                throw new VectorPrintRuntimeException(String.format("%s hides %s",
+                        getClass().getName(), h.getClass().getName()));
+            }
+        }
+        for (DecorationAware da : index.ownLayers(DecorationAware.class)) {
+            if (da != this && !da.getDecorators().contains(getClass())) {
+                da.addDecorator(getClass());
+                da.setOutermostDecorator(this);
+            }
+        }
     }
 
     /**
@@ -81,72 +129,72 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
      */
     @Override
     public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
-        return settings.getBooleanProperty(defaultValue, keys);
+        return reader.getBooleanProperty(defaultValue, keys);
     }
 
     @Override
     public Color getColorProperty(Color defaultValue, String... keys) {
-        return settings.getColorProperty(defaultValue, keys);
+        return reader.getColorProperty(defaultValue, keys);
     }
 
     @Override
     public double getDoubleProperty(Double defaultValue, String... keys) {
-        return settings.getDoubleProperty(defaultValue, keys);
+        return reader.getDoubleProperty(defaultValue, keys);
     }
 
     @Override
     public float getFloatProperty(Float defaultValue, String... keys) {
-        return settings.getFloatProperty(defaultValue, keys);
+        return reader.getFloatProperty(defaultValue, keys);
     }
 
     @Override
     public int getIntegerProperty(Integer defaultValue, String... keys) {
-        return settings.getIntegerProperty(defaultValue, keys);
+        return reader.getIntegerProperty(defaultValue, keys);
     }
 
     @Override
     public long getLongProperty(Long defaultValue, String... keys) {
-        return settings.getLongProperty(defaultValue, keys);
+        return reader.getLongProperty(defaultValue, keys);
     }
 
     @Override
     public String getProperty(String defaultValue, String... keys) {
-        return settings.getProperty(defaultValue, keys);
+        return reader.getProperty(defaultValue, keys);
     }
 
     @Override
     public String[] getStringProperties(String[] defaultValue, String... keys) {
-        return settings.getStringProperties(defaultValue, keys);
+        return reader.getStringProperties(defaultValue, keys);
     }
 
     @Override
     public float[] getFloatProperties(float[] defaultValue, String... keys) {
-        return settings.getFloatProperties(defaultValue, keys);
+        return reader.getFloatProperties(defaultValue, keys);
     }
 
     @Override
     public double[] getDoubleProperties(double[] defaultValue, String... keys) {
-        return settings.getDoubleProperties(defaultValue, keys);
+        return reader.getDoubleProperties(defaultValue, keys);
     }
 
     @Override
     public int[] getIntegerProperties(int[] defaultValue, String... keys) {
-        return settings.getIntegerProperties(defaultValue, keys);
+        return reader.getIntegerProperties(defaultValue, keys);
     }
 
     @Override
     public long[] getLongProperties(long[] defaultValue, String... keys) {
-        return settings.getLongProperties(defaultValue, keys);
+        return reader.getLongProperties(defaultValue, keys);
     }
 
     @Override
     public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
-        return settings.getBooleanProperties(defaultValue, keys);
+        return reader.getBooleanProperties(defaultValue, keys);
     }
 
     @Override
     public Color[] getColorProperties(Color[] defaultValue, String... keys) {
-        return settings.getColorProperties(defaultValue, keys);
+        return reader.getColorProperties(defaultValue, keys);
     }
 
     @Override
@@ -186,7 +234,7 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
 
     @Override
     public boolean containsKey(Object key) {
-        return settings.containsKey(key);
+        return reader.containsKey(key);
     }
 
     @Override
@@ -196,7 +244,7 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
 
     @Override
     public String[] get(Object key) {
-        return settings.get(key);
+        return reader.get(key);
     }
 
     @Override
@@ -243,9 +291,60 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
     public EnhancedMap clone() throws CloneNotSupportedException {
         AbstractPropertiesDecorator clone = (AbstractPropertiesDecorator) super.clone();
         clone.settings = settings.clone();
+        clone.reader = fuse(clone.settings);
+        clone.index = new StackIndex(clone, clone.settings, shared);
         return clone;
     }
 
+    private static final Set<String> READ_METHODS = Arrays.stream(EnhancedMap.class.getMethods())
+            .map(Method::getName)
+            .filter(n -> n.matches("get\\w*Propert(y|ies)"))
+            .collect(Collectors.toCollection(() -> new HashSet<>(Set.of(
+                    "getOptional", "lookup", "getInt", "getLong", "getDouble", "getBoolean", "get", "containsKey", "query"))));
+
+    /**
+     * true when a decorator class overrides one or more of the typed getters, {@link #lookup(Class, String...) },
+     * {@link #get(Object) }, {@link #containsKey(Object) } or {@link #query(SettingsQuery) }
+     */
+    private static final ClassValue<Boolean> OVERRIDES_READS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != AbstractPropertiesDecorator.class; c = c.getSuperclass()) {
+                for (Method m : c.getDeclaredMethods()) {
+                    if (!m.isSynthetic() && !Modifier.isStatic(m.getModifiers()) && READ_METHODS.contains(m.getName())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Determine where reads are sent, decorators that do not override reads are skipped.
+     *
+     * @param settings the settings directly decorated
+     * @return
+     */
+    private static EnhancedMap fuse(EnhancedMap settings) {
+        if (settings instanceof AbstractPropertiesDecorator apd && !OVERRIDES_READS.get(apd.getClass())) {
+            return apd.reader;
+        }
+        return settings;
+    }
+
+    /**
+     * Reads ({@link #getGenericProperty(Object, Class, String...) typed getters}, {@link #get(Object) }, {@link #containsKey(Object) }
+     * and {@link #query(SettingsQuery) }) that a decorator does not override go directly to the map returned here,
+     * decorators in between that only decorate writes or other behaviour are skipped. Writes always travel the whole
+     * stack.
+     *
+     * @return the nearest map in the stack that handles reads itself
+     */
+    public final EnhancedMap getReadTarget() {
+        return reader;
+    }
+
     /**
      * returns true if an EnhancedMap is present in the stack of decorators that
      * is an implementation of the class argument.
@@ -254,52 +353,74 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
      * @return
      */
     public final boolean hasProperties(Class<? extends EnhancedMap> clazz) {
-        EnhancedMap inner = this;
-        while (inner != null) {
-            if (clazz.isInstance(inner)) {
-                return true;
-            } else if (inner instanceof AbstractPropertiesDecorator) {
-                inner = ((AbstractPropertiesDecorator) inner).settings;
-            } else {
-                inner = null;
-            }
+        return getStackIndex().has(clazz);
+    }
+
+    /**
+     * @return the index of the stack, rebuilt after deserialization
+     */
+    StackIndex getStackIndex() {
+        StackIndex i = index;
+        if (i == null) {
+            index = i = new StackIndex(this, settings, shared);
         }
-        return false;
+        return i;
     }
 
-    private DecorationAware[] getDecorationAwares() {
-        EnhancedMap inner = settings;
-        List<DecorationAware> l = new ArrayList<>(1);
-        while (inner != null) {
-            if (inner instanceof DecorationAware) {
-                l.add((DecorationAware) inner);
-            }
-            if (inner instanceof AbstractPropertiesDecorator) {
-                inner = ((AbstractPropertiesDecorator) inner).settings;
-            } else {
-                inner = null;
-            }
+    /**
+     * Run an action when a change written through this decorator is visible to readers, with {@link VersionedSettings}
+     * beneath that is after the running {@link VersionedSettings#update(VersionedSettings.Changes) update} is published.
+     *
+     * @param action
+     */
+    protected final void whenPublished(Runnable action) {
+        List<VersionedSettings> versioned = getStackIndex().layers(VersionedSettings.class);
+        if (versioned.isEmpty()) {
+            action.run();
+        } else {
+            versioned.get(0).whenPublished(action);
+        }
+    }
+
+    /**
+     * Run changes, with {@link VersionedSettings} beneath they are {@link VersionedSettings#update(VersionedSettings.Changes) published}
+     * as one version, readers do not see them half applied and the settings are copied once.
+     *
+     * @param <E>
+     * @param changes
+     * @throws E
+     */
+    protected final <E extends Exception> void inOneVersion(VersionedSettings.Changes<E> changes) throws E {
+        List<VersionedSettings> versioned = getStackIndex().layers(VersionedSettings.class);
+        if (versioned.isEmpty()) {
+            changes.apply();
+        } else {
+            versioned.get(0).update(changes);
         }
-        return l.toArray(DecorationAware[]::new);
     }
 
     /**
      * traverse the stack of settings decorators and visit all that {@link DecoratorVisitor#shouldVisit(EnhancedMap) should be visited} . {@link DecoratorVisitor#visit(com.vectorprint.configuration.EnhancedMap)
-     * } will be called.
+     * } will be called. For an {@link AbstractVisitor} only the layers of its {@link AbstractVisitor#getVisitedClass() type}
+     * are considered, these are found in a precomputed index of the stack.
      *
      * @param dv
      * @see SettingsAnnotationProcessorImpl
      */
     public final void accept(DecoratorVisitor dv) {
-        EnhancedMap inner = this;
-        while (inner != null) {
-            if (dv.shouldVisit(inner)) {
-                dv.visit(inner);
+        StackIndex index = getStackIndex();
+        if (dv instanceof AbstractVisitor<?> av) {
+            for (EnhancedMap e : index.layers(av.getVisitedClass())) {
+                if (dv.shouldVisit(e)) {
+                    dv.visit(e);
+                }
             }
-            if (inner instanceof AbstractPropertiesDecorator) {
-                inner = ((AbstractPropertiesDecorator) inner).settings;
-            } else {
-                inner = null;
+            return;
+        }
+        for (int i = 0; i < index.size(); i++) {
+            EnhancedMap e = index.layer(i);
+            if (dv.shouldVisit(e)) {
+                dv.visit(e);
             }
         }
     }
@@ -311,64 +432,89 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
 
     @Override
     public URL getURLProperty(URL defaultValue, String... keys) throws MalformedURLException {
-        return settings.getURLProperty(defaultValue, keys);
+        return reader.getURLProperty(defaultValue, keys);
     }
 
     @Override
     public URL[] getURLProperties(URL[] defaultValue, String... keys) throws MalformedURLException {
-        return settings.getURLProperties(defaultValue, keys);
+        return reader.getURLProperties(defaultValue, keys);
     }
 
     @Override
     public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
-        return settings.getGenericProperty(defaultValue, clazz, keys);
+        return reader.getGenericProperty(defaultValue, clazz, keys);
     }
 
     @Override
     public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
-        return settings.getOptional(clazz, keys);
+        return reader.getOptional(clazz, keys);
+    }
+
+    @Override
+    public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+        return reader.lookup(clazz, keys);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return reader.getInt(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return reader.getLong(key, defaultValue);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        return reader.getDouble(key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return reader.getBoolean(key, defaultValue);
     }
 
     @Override
     public short getShortProperty(Short defaultValue, String... keys) {
-        return settings.getShortProperty(defaultValue, keys);
+        return reader.getShortProperty(defaultValue, keys);
     }
 
     @Override
     public char getCharProperty(Character defaultValue, String... keys) {
-        return settings.getCharProperty(defaultValue, keys);
+        return reader.getCharProperty(defaultValue, keys);
     }
 
     @Override
     public byte getByteProperty(Byte defaultValue, String... keys) {
-        return settings.getByteProperty(defaultValue, keys);
+        return reader.getByteProperty(defaultValue, keys);
     }
 
     @Override
     public short[] getShortProperties(short[] defaultValue, String... keys) {
-        return settings.getShortProperties(defaultValue, keys);
+        return reader.getShortProperties(defaultValue, keys);
     }
 
     @Override
     public char[] getCharProperties(char[] defaultValue, String... keys) {
-        return settings.getCharProperties(defaultValue, keys);
+        return reader.getCharProperties(defaultValue, keys);
 
     }
 
     @Override
     public byte[] getByteProperties(byte[] defaultValue, String... keys) {
-        return settings.getByteProperties(defaultValue, keys);
+        return reader.getByteProperties(defaultValue, keys);
 
     }
 
     @Override
     public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
-        return settings.getLocalDateTimeProperty(defaultValue, keys);
+        return reader.getLocalDateTimeProperty(defaultValue, keys);
     }
 
     @Override
     public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
-        return settings.getLocalDateTimeProperties(defaultValue, keys);
+        return reader.getLocalDateTimeProperties(defaultValue, keys);
     }
 
     @Override
@@ -390,7 +536,7 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
      */
     @Override
     public Class getClassProperty(Class defaultValue, String... keys) throws ClassNotFoundException {
-        return settings.getClassProperty(defaultValue, keys);
+        return reader.getClassProperty(defaultValue, keys);
     }
 
     /**
@@ -402,27 +548,50 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
      */
     @Override
     public Class[] getClassProperties(Class[] defaultValue, String... keys) throws ClassNotFoundException {
-        return settings.getClassProperties(defaultValue, keys);
+        return reader.getClassProperties(defaultValue, keys);
     }
 
     @Override
     public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
-        return settings.getRegexProperty(defaultValue, keys);
+        return reader.getRegexProperty(defaultValue, keys);
     }
 
     @Override
     public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
-        return settings.getRegexProperties(defaultValue, keys);
+        return reader.getRegexProperties(defaultValue, keys);
     }
 
     @Override
     public File getFileProperty(File defaultValue, String... keys) {
-        return settings.getFileProperty(defaultValue, keys);
+        return reader.getFileProperty(defaultValue, keys);
     }
 
     @Override
     public File[] getFileProperties(File[] defaultValue, String... keys) {
-        return settings.getFileProperties(defaultValue, keys);
+        return reader.getFileProperties(defaultValue, keys);
+    }
+
+    @Override
+    public EnhancedMap subset(String prefix, boolean stripPrefix) {
+        return new SettingsSubset(this, prefix, stripPrefix);
+    }
+
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        return reader.query(query);
+    }
+
+    @Override
+    public long getVersion() {
+        return settings.getVersion();
+    }
+
+    /**
+     * The handle reads from this decorator, not from the settings wrapped.
+     */
+    @Override
+    public <T> SettingKey<T> settingKey(Class<T> clazz, T defaultValue, String... keys) {
+        return new SettingKey<>(this, clazz, defaultValue, keys);
     }
 
     @Override
@@ -489,54 +658,4 @@ public abstract class AbstractPropertiesDecorator implements EnhancedMap, Decora
         log.warn(String.format("NB! %s decorated by %s, you should use this instead of %s", getClass().getName(), outermostDecorator.getClass().getName(),
                 getClass().getName()));
     }
-
-    private static class DecoratorOveriew implements DecoratorVisitor<AbstractPropertiesDecorator> {
-
-        private final DecorationAware[] das;
-        private boolean visit = true;
-
-        public DecoratorOveriew(DecorationAware... das) {
-            this.das = das;
-        }
-
-        @Override
-        public boolean shouldVisit(EnhancedMap e) {
-            return visit && e instanceof AbstractPropertiesDecorator;
-        }
-
-        @Override
-        public void visit(AbstractPropertiesDecorator e) {
-            for (DecorationAware da : das) {
-                if (e.equals(da)) {
-                    // this AbstractPropertiesDecorator and the ones to come (from accept) do not wrap da
-                    // other DecorationAwares in the list have already been visited, so this construct
-                    // doesn't cause loss of information
-                    visit = false;
-                    break;
-                }
-                if (!da.getDecorators().contains(e.getClass())) {
-                    da.addDecorator(e.getClass());
-                    da.setOutermostDecorator(e);
-                }
-            }
-        }
-
-    }
-
-    private record Hiding(AbstractPropertiesDecorator settings) implements DecoratorVisitor<HiddenBy> {
-
-        @Override
-            public void visit(HiddenBy e) {
-                if (e.hiddenBy(settings.getClass())) {
-                    throw new VectorPrintRuntimeException(String.format("%s hides %s",
-                            settings.getClass().getName(), e.getClass().getName()));
-                }
-            }
-
-            @Override
-            public boolean shouldVisit(EnhancedMap e) {
-                return e instanceof HiddenBy;
-            }
-
-        }
 }
@@ -22,7 +22,8 @@ package com.vectorprint.configuration.decoration;
  */
 
 import com.vectorprint.configuration.EnhancedMap;
-import com.vectorprint.configuration.NoValueException;
+import com.vectorprint.configuration.Found;
+import com.vectorprint.configuration.SettingsQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,11 +48,16 @@ public class AllowNoValue extends AbstractPropertiesDecorator {
     }
 
     private <T> T allowNoValue(T defaultValue, Class<T> clazz, String... keys) {
-        try {
+        if (defaultValue != null) {
             return super.getGenericProperty(defaultValue, clazz, keys);
-        } catch (NoValueException ex) {
-            return null;
         }
+        Found<T> found = lookup(clazz, keys);
+        return found == null ? null : found.getValue();
+    }
+
+    @Override
+    public SettingsQuery.Result query(SettingsQuery query) {
+        return super.query(query.allowingNoValue());
     }
 
     @Override
@@ -224,6 +230,7 @@ public class AllowNoValue extends AbstractPropertiesDecorator {
 
     @Override
     public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
-        return Optional.ofNullable(allowNoValue(null,clazz, keys));
+        Found<T> found = lookup(clazz, keys);
+        return found == null ? Optional.empty() : Optional.ofNullable(found.getValue());
     }
 }
@@ -21,79 +21,573 @@ package com.vectorprint.configuration.decoration;
  * #L%
  */
 
+import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.EnhancedMap;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.vectorprint.configuration.Found;
+import com.vectorprint.configuration.NoValueException;
+import com.vectorprint.configuration.SettingsQuery;
+import com.vectorprint.configuration.management.SettingsStats;
+import com.vectorprint.configuration.management.StatsAware;
 
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.lang.reflect.Array;
 import java.net.URL;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
-public class CachingProperties extends AbstractPropertiesDecorator {
-
-   private static final Logger LOGGER = LoggerFactory.getLogger(CachingProperties.class.getName());
+public class CachingProperties extends AbstractPropertiesDecorator implements StatsAware {
 
    public CachingProperties(EnhancedMap settings) {
+      this(settings, null, 0, false, null);
+   }
+
+   /**
+    * A cache holding at most maximum entries, an entry being the values cached for a key or a tuple of keys.
+    *
+    * @param settings
+    * @param eviction
+    * @param maximum
+    */
+   public CachingProperties(EnhancedMap settings, EvictionPolicy eviction, long maximum) {
+      this(settings, eviction, maximum, false, null);
+   }
+
+   /**
+    *
+    * @param settings
+    * @param eviction the entry to evict when the cache is full, null means {@link EvictionPolicy#LRU}
+    * @param maximum the maximum number of entries or, when weighed, the maximum estimated size in bytes of the values
+    * cached, 0 means unbounded
+    * @param weighed when true weigh entries by the estimated size of the values cached
+    * @param ttl how long an entry may be used after it was cached, null or zero means forever
+    */
+   public CachingProperties(EnhancedMap settings, EvictionPolicy eviction, long maximum, boolean weighed, Duration ttl) {
       super(settings);
+      if (maximum < 0 || (ttl != null && ttl.isNegative())) {
+         throw new VectorPrintRuntimeException(String.format("maximum (%s) and ttl (%s) may not be negative", maximum, ttl));
+      }
+      this.eviction = eviction == null ? EvictionPolicy.LRU : eviction;
+      this.maximum = maximum == 0 ? Long.MAX_VALUE : maximum;
+      this.weighed = weighed;
+      this.ttl = ttl == null ? 0 : ttl.toNanos();
+      this.bounded = maximum > 0 || this.ttl > 0;
+      queue = bounded ? this.eviction.queue() : null;
+   }
+
+   private final EvictionPolicy eviction;
+   private final long maximum;
+   private final boolean weighed;
+   private final long ttl;
+   private final boolean bounded;
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
+   /**
+    * entries in order of eviction, null when unbounded, guarded by this
+    */
+   private transient EvictionQueue<Node> queue;
+   /**
+    * nodes hit since the eviction order was last updated, each node once, see {@link #hit(Node) }
+    */
+   private transient volatile Queue<Node> accessed = new ConcurrentLinkedQueue<>();
+   private transient long weight;
+   private transient volatile Node root = new Node(null, null);
+   /**
+    * for each key the nodes of all tuples containing it, used to invalidate only affected entries
+    */
+   private transient volatile Map<String, Set<Node>> byKey = new ConcurrentHashMap<>();
+   private transient volatile SettingsStats stats;
+
+   /**
+    * Cached values for a tuple of keys, the node for a tuple hangs below the node of the tuple without its last key,
+    * so looking up a tuple walks the keys without building a composite key. A node holds a slot per requested type, one
+    * key can be cached for several types at the same time. Nodes for single keys also hold unboxed values for
+    * {@link #getInt(String, int) } and friends, these are only filled for present keys. A node for a tuple of which no
+    * key is present remembers that, so defaults are served without asking the decorated settings again. Defaults
+    * themselves are never cached, they may differ per call.
+    * <p>Reads are lock free, changes to the slots of a node synchronize on the node.</p>
+    */
+   private static final class Node {
+
+      private static final int INT = 1, LONG = 2, DOUBLE = 4, BOOLEAN = 8;
+      /**
+       * none of the keys present, with a null default a {@link NoValueException} is thrown or null is returned
+       */
+      private static final int ABSENT = 16, NO_VALUE = 32, NULL = 64;
+      private final Node parent;
+      private final String key;
+      private volatile Map<String, Node> next;
+      private volatile Slot slots;
+      private volatile int filled;
+      private int i;
+      private long l;
+      private double d;
+      private boolean b;
+      private long weight;
+      /**
+       * hits not yet registered in the eviction order
+       */
+      private volatile int unregistered;
+      private volatile long created;
+      private volatile boolean detached;
+
+      private Node(Node parent, String key) {
+         this.parent = parent;
+         this.key = key;
+      }
+
+      private boolean has(int slot) {
+         return (filled & slot) != 0;
+      }
+
+      /**
+       * @return false when the bits were already set
+       */
+      private synchronized boolean fill(int slot) {
+         int old = filled;
+         filled |= slot;
+         return (old & slot) != slot;
+      }
+
+      private Slot slot(Class<?> type, boolean optional) {
+         for (Slot s = slots; s != null; s = s.next) {
+            if (s.type == type && s.optional == optional) {
+               return s;
+            }
+         }
+         return null;
+      }
+
+      /**
+       * @return the slot already present or null when the value was added
+       */
+      private synchronized Slot putIfAbsent(Class<?> type, boolean optional, Object value) {
+         Slot s = slot(type, optional);
+         if (s == null) {
+            slots = new Slot(type, optional, value, slots);
+         }
+         return s;
+      }
+
+      /**
+       * replace or, when value is {@link #REMOVE}, remove the slot holding expect
+       *
+       * @return false when the slot is no longer there
+       */
+      private synchronized boolean replace(Object expect, Object value) {
+         if (slot(expect) == null) {
+            return false;
+         }
+         slots = replace(slots, expect, value);
+         return true;
+      }
+
+      private Slot slot(Object value) {
+         for (Slot s = slots; s != null; s = s.next) {
+            if (s.value == value) {
+               return s;
+            }
+         }
+         return null;
+      }
+
+      private static Slot replace(Slot s, Object expect, Object value) {
+         if (s.value == expect) {
+            return value == REMOVE ? s.next : new Slot(s.type, s.optional, value, s.next);
+         }
+         return new Slot(s.type, s.optional, s.value, replace(s.next, expect, value));
+      }
+
+      private synchronized void clear() {
+         slots = null;
+         filled = 0;
+      }
+
+      private Node child(String key) {
+         Map<String, Node> n = next;
+         return n == null ? null : n.get(key);
+      }
+
+      private Map<String, Node> children() {
+         Map<String, Node> n = next;
+         if (n == null) {
+            synchronized (this) {
+               if ((n = next) == null) {
+                  next = n = new ConcurrentHashMap<>(4);
+               }
+            }
+         }
+         return n;
+      }
+
+      private boolean empty() {
+         Map<String, Node> n = next;
+         return slots == null && filled == 0 && (n == null || n.isEmpty());
+      }
+
+      private int size() {
+         int n = Integer.bitCount(filled & (INT | LONG | DOUBLE | BOOLEAN | ABSENT));
+         for (Slot s = slots; s != null; s = s.next) {
+            n++;
+         }
+         Map<String, Node> c = next;
+         if (c != null) {
+            for (Node child : c.values()) {
+               n += child.size();
+            }
+         }
+         return n;
+      }
    }
 
-   private final Map<String, Object> cache = new HashMap<>();
+   private static final Object REMOVE = new Object();
+   /**
+    * result of a conversion when none of the keys is present
+    */
+   private static final Object ABSENT = new Object();
+
+   /**
+    * a cached value for a type, optional slots hold the result of {@link #getOptional(Class, String...) }
+    */
+   private record Slot(Class<?> type, boolean optional, Object value, Slot next) {
+   }
+
+   /**
+    * Placeholder in a slot while a value is being converted, other threads wait for the conversion instead of doing it
+    * themselves.
+    */
+   private static final class Loading {
+
+      private final CompletableFuture<Object> value = new CompletableFuture<>();
+      private final Thread loader = Thread.currentThread();
+
+      private Object await() {
+         try {
+            return value.join();
+         } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+               throw re;
+            }
+            throw ex;
+         }
+      }
+   }
+
+   private Node find(String key) {
+      return root.child(key);
+   }
+
+   private Node find(String... keys) {
+      Node n = root;
+      for (String k : keys) {
+         if ((n = n.child(k)) == null) {
+            return null;
+         }
+      }
+      return n;
+   }
+
+   private Node node(String... keys) {
+      Node n = root;
+      for (String k : keys) {
+         n = childOrNew(n, k);
+      }
+      return n;
+   }
+
+   private Node childOrNew(Node parent, String key) {
+      Node n = parent.child(key);
+      if (n == null) {
+         Map<String, Set<Node>> index = byKey;
+         n = parent.children().computeIfAbsent(key, k -> {
+            Node c = new Node(parent, k);
+            for (Node p = c; p.parent != null; p = p.parent) {
+               index.compute(p.key, (pk, nodes) -> {
+                  Set<Node> set = nodes == null ? ConcurrentHashMap.newKeySet(2) : nodes;
+                  set.add(c);
+                  return set;
+               });
+            }
+            return c;
+         });
+      }
+      return n;
+   }
+
+   /**
+    * @param key
+    * @return true when the key is present with a non empty value, otherwise primitive getters return the caller's
+    * default, which is not cached
+    */
+   private boolean hasValue(String key) {
+      String[] v = super.get(key);
+      return v != null && v.length > 0 && v[0] != null && !v[0].isEmpty();
+   }
+
+   @Override
+   public int getInt(String key, int defaultValue) {
+      Node s = live(find(key));
+      if (s != null && s.has(Node.INT | Node.ABSENT)) {
+         hit(s);
+         return s.has(Node.INT) ? s.i : defaultValue;
+      }
+      miss();
+      // find the node before converting, a value put meanwhile detaches it
+      s = childOrNew(root, key);
+      int v = super.getInt(key, defaultValue);
+      if (hasValue(key)) {
+         s.i = v;
+         s.fill(Node.INT);
+         stored(s, null, true);
+      } else if (!super.containsKey(key)) {
+         absent(s, 0);
+      }
+      return v;
+   }
+
+   @Override
+   public long getLong(String key, long defaultValue) {
+      Node s = live(find(key));
+      if (s != null && s.has(Node.LONG | Node.ABSENT)) {
+         hit(s);
+         return s.has(Node.LONG) ? s.l : defaultValue;
+      }
+      miss();
+      // find the node before converting, a value put meanwhile detaches it
+      s = childOrNew(root, key);
+      long v = super.getLong(key, defaultValue);
+      if (hasValue(key)) {
+         s.l = v;
+         s.fill(Node.LONG);
+         stored(s, null, true);
+      } else if (!super.containsKey(key)) {
+         absent(s, 0);
+      }
+      return v;
+   }
+
+   @Override
+   public double getDouble(String key, double defaultValue) {
+      Node s = live(find(key));
+      if (s != null && s.has(Node.DOUBLE | Node.ABSENT)) {
+         hit(s);
+         return s.has(Node.DOUBLE) ? s.d : defaultValue;
+      }
+      miss();
+      // find the node before converting, a value put meanwhile detaches it
+      s = childOrNew(root, key);
+      double v = super.getDouble(key, defaultValue);
+      if (hasValue(key)) {
+         s.d = v;
+         s.fill(Node.DOUBLE);
+         stored(s, null, true);
+      } else if (!super.containsKey(key)) {
+         absent(s, 0);
+      }
+      return v;
+   }
+
+   @Override
+   public boolean getBoolean(String key, boolean defaultValue) {
+      Node s = live(find(key));
+      if (s != null && s.has(Node.BOOLEAN | Node.ABSENT)) {
+         hit(s);
+         return s.has(Node.BOOLEAN) ? s.b : defaultValue;
+      }
+      miss();
+      // find the node before converting, a value put meanwhile detaches it
+      s = childOrNew(root, key);
+      boolean v = super.getBoolean(key, defaultValue);
+      if (hasValue(key)) {
+         s.b = v;
+         s.fill(Node.BOOLEAN);
+         stored(s, null, true);
+      } else if (!super.containsKey(key)) {
+         absent(s, 0);
+      }
+      return v;
+   }
 
    @Override
    public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
       return fromCache(defaultValue, LocalDateTime[].class, keys);
    }
 
-    private <T> Optional<T> fromCache(Class<T> clazz, String... keys) {
-        return (Optional<T>) fromCache(true,null, clazz, keys);
-    }
+   private <T> Optional<T> fromCache(Class<T> clazz, String... keys) {
+      return (Optional<T>) fromCache(true, null, clazz, keys);
+   }
 
-    private <T> T fromCache(T defaultValue, Class<T> clazz, String... keys) {
-       return fromCache(false,defaultValue, clazz, keys);
-    }
-    private <T> T fromCache(boolean optional, T defaultValue, Class<T> clazz, String... keys) {
-      String key = keys.length == 1 ? keys[0] : String.join("", keys);
-      Object value = cache.get(key);
-      if (cache.containsKey(key) && (clazz.isInstance(value) || (clazz.isPrimitive() && checkPrimitive(clazz, value.getClass())))) {
-         return (T) value;
-      }
-      if (!cache.containsKey(key)) {
-         cache.put(key, optional?super.getOptional(clazz,keys):super.getGenericProperty(defaultValue, clazz, keys));
-      } else if (null != value) {
-         if (clazz.isPrimitive()) {
-            Class c = value.getClass();
-            if (!checkPrimitive(clazz, c)) {
-                cache.put(key, optional?super.getOptional(clazz,keys):super.getGenericProperty(defaultValue, clazz, keys));
-               if (LOGGER.isWarnEnabled()) {
-                  LOGGER.warn(String.format("class for %s in cache is %s, this does not match requested class: %s. New type put in cache.",
-                      key, c.getName(), clazz.getName()));
-               }
-            }
-         } else if (!clazz.isInstance(value)) {
-             cache.put(key, optional?super.getOptional(clazz,keys):super.getGenericProperty(defaultValue, clazz, keys));
-            if (LOGGER.isWarnEnabled()) {
-               LOGGER.warn(String.format("class for %s in cache is %s, this does not match requested class: %s. New type put in cache.",
-                   key, value.getClass().getName(), clazz.getName()));
+   private <T> T fromCache(T defaultValue, Class<T> clazz, String... keys) {
+      return (T) fromCache(false, defaultValue, clazz, keys);
+   }
+
+   private <T> Object fromCache(boolean optional, T defaultValue, Class<T> clazz, String... keys) {
+      Node n = live(find(keys));
+      if (n != null) {
+         Slot s = n.slot(clazz, optional);
+         if (s != null) {
+            hit(n);
+            return s.value instanceof Loading l ? await(l, optional, defaultValue, clazz, keys) : s.value;
+         }
+         if (n.has(Node.ABSENT) && (optional || defaultValue != null || n.has(Node.NO_VALUE | Node.NULL))) {
+            hit(n);
+            return absent(n, optional, defaultValue, keys);
+         }
+      }
+      miss();
+      n = node(keys);
+      Loading loading = new Loading();
+      Slot s = n.putIfAbsent(clazz, optional, loading);
+      if (s != null) {
+         return s.value instanceof Loading l ? await(l, optional, defaultValue, clazz, keys) : s.value;
+      }
+      Object value;
+      try {
+         value = load(optional, defaultValue, clazz, keys);
+      } catch (RuntimeException ex) {
+         n.replace(loading, REMOVE);
+         if (ex instanceof NoValueException && absent(keys)) {
+            absent(n, Node.NO_VALUE);
+            // waiters may have a default
+            loading.value.complete(ABSENT);
+         } else {
+            loading.value.completeExceptionally(ex);
+         }
+         throw ex;
+      }
+      if ((optional ? ((Optional<?>) value).isEmpty() : Objects.equals(value, defaultValue)) && absent(keys)) {
+         n.replace(loading, REMOVE);
+         absent(n, defaultValue == null && !optional ? Node.NULL : 0);
+         loading.value.complete(ABSENT);
+         return value;
+      }
+      if (n.replace(loading, value)) {
+         stored(n, value, false);
+      }
+      loading.value.complete(value);
+      return value;
+   }
+
+   /**
+    * @return true when none of the keys is present
+    */
+   private boolean absent(String... keys) {
+      for (String k : keys) {
+         if (super.containsKey(k)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * remember none of the keys of a node is present
+    *
+    * @param n
+    * @param noDefault {@link Node#NO_VALUE}, {@link Node#NULL} or 0 when not known what happens without a default
+    */
+   private void absent(Node n, int noDefault) {
+      if (n.fill(Node.ABSENT)) {
+         stored(n, null, true);
+      }
+      n.fill(noDefault);
+   }
+
+   private static Object absent(Node n, boolean optional, Object defaultValue, String... keys) {
+      if (optional) {
+         return Optional.empty();
+      }
+      if (defaultValue != null || n.has(Node.NULL)) {
+         return defaultValue;
+      }
+      throw new NoValueException(Arrays.asList(keys) + " not found and default is null");
+   }
+
+   private <T> Object load(boolean optional, T defaultValue, Class<T> clazz, String... keys) {
+      return optional ? super.getOptional(clazz, keys) : super.getGenericProperty(defaultValue, clazz, keys);
+   }
+
+   /**
+    * wait for a conversion in another thread, convert directly when the conversion needs the value being converted
+    */
+   private <T> Object await(Loading l, boolean optional, T defaultValue, Class<T> clazz, String... keys) {
+      if (l.loader == Thread.currentThread()) {
+         return load(optional, defaultValue, clazz, keys);
+      }
+      Object value = l.await();
+      return value == ABSENT ? fromCache(optional, defaultValue, clazz, keys) : value;
+   }
+
+   /**
+    * Serves entries from the cache, entries not cached are resolved together in one query to the decorated settings.
+    *
+    * @param query
+    * @return
+    */
+   @Override
+   public SettingsQuery.Result query(SettingsQuery query) {
+      long version = getVersion();
+      Object[] found = new Object[query.size()];
+      Node[] targets = new Node[query.size()];
+      SettingsQuery misses = null;
+      Map<SettingsQuery.Entry<?>, SettingsQuery.Entry<?>> missed = null;
+      for (SettingsQuery.Entry<?> e : query.getEntries()) {
+         Node n = live(find(e.getKeys()));
+         Slot s = n == null ? null : n.slot(e.getType(), false);
+         if (s != null && s.value != null && !(s.value instanceof Loading)) {
+            hit(n);
+            found[e.getIndex()] = s.value;
+         } else if (s == null && n != null && n.has(Node.ABSENT) && (e.getDefaultValue() != null || query.isAllowNoValue())) {
+            hit(n);
+            found[e.getIndex()] = e.getDefaultValue();
+         } else {
+            miss();
+            if (misses == null) {
+               misses = query.isAllowNoValue() ? new SettingsQuery().allowingNoValue() : new SettingsQuery();
+               missed = new HashMap<>(query.size() * 2);
             }
+            missed.put(e, copy(misses, e));
+            targets[e.getIndex()] = node(e.getKeys());
          }
       }
-      return (T) cache.get(key);
+      if (misses != null) {
+         SettingsQuery.Result r = super.query(misses);
+         missed.forEach((e, m) -> {
+            Object value = r.get(m);
+            Node n = targets[e.getIndex()];
+            if (Objects.equals(value, e.getDefaultValue()) && absent(e.getKeys())) {
+               absent(n, 0);
+            } else if (value != null && n.putIfAbsent(e.getType(), false, value) == null) {
+               stored(n, value, false);
+            }
+            found[e.getIndex()] = value;
+         });
+      }
+      return new SettingsQuery.Result(query, version, e -> found[e.getIndex()]);
    }
 
-   private static boolean checkPrimitive(Class prim, Class wrapper) {
-      return (prim.equals(int.class) && wrapper.equals(Integer.class))
-          || (prim.equals(boolean.class) && wrapper.equals(Boolean.class))
-          || (prim.equals(long.class) && wrapper.equals(Long.class))
-          || (prim.equals(double.class) && wrapper.equals(Double.class))
-          || (prim.equals(float.class) && wrapper.equals(Float.class))
-          || (prim.equals(char.class) && wrapper.equals(Character.class))
-          || (prim.equals(short.class) && wrapper.equals(Short.class))
-          || (prim.equals(byte.class) && wrapper.equals(Byte.class));
+   private static <T> SettingsQuery.Entry<T> copy(SettingsQuery query, SettingsQuery.Entry<T> e) {
+      return query.add(e.getType(), e.getDefaultValue(), e.getKeys());
    }
 
    @Override
@@ -123,8 +617,206 @@ public class CachingProperties extends AbstractPropertiesDecorator {
 
    @Override
    public String[] remove(Object key) {
-       cache.entrySet().removeIf(next -> next.getKey().contains(String.valueOf(key)));
-      return super.remove(key);
+      String[] old = super.remove(key);
+      whenPublished(() -> invalidate(String.valueOf(key)));
+      return old;
+   }
+
+   /**
+    * Remove the cached values for all key tuples containing one of the keys, the cost is proportional to the number of
+    * entries removed. Called by {@link ReloadableProperties} beneath this decorator after a reload. Each key is
+    * invalidated atomically, a conversion running concurrently will not put its value in the cache.
+    *
+    * @param keys
+    */
+   public void invalidate(Collection<String> keys) {
+      keys.forEach(this::invalidate);
+   }
+
+   private void invalidate(String key) {
+      Map<String, Set<Node>> index = byKey;
+      Set<Node> nodes = index.remove(key);
+      if (nodes != null) {
+         for (Node n : nodes) {
+            detach(index, n);
+            untrack(n);
+         }
+      }
+   }
+
+   /**
+    * remove a node from the tree and from the reverse index
+    *
+    * @param n
+    */
+   private void detach(Map<String, Set<Node>> index, Node n) {
+      n.detached = true;
+      Map<String, Node> siblings = n.parent.next;
+      if (siblings != null) {
+         siblings.remove(n.key, n);
+      }
+      for (Node p = n; p.parent != null; p = p.parent) {
+         index.computeIfPresent(p.key, (k, set) -> {
+            set.remove(n);
+            return set.isEmpty() ? null : set;
+         });
+      }
+   }
+
+   private synchronized void untrack(Node n) {
+      if (queue != null && n.weight > 0) {
+         queue.remove(n);
+         weight -= n.weight;
+         n.weight = 0;
+         n.created = 0;
+      }
+   }
+
+   /**
+    * drop the values of a node, remove it and parents that became empty from the tree
+    *
+    * @param n
+    */
+   private synchronized void evict(Node n) {
+      untrack(n);
+      n.clear();
+      evictions.increment();
+      Map<String, Set<Node>> index = byKey;
+      while (n.parent != null && n.empty()) {
+         detach(index, n);
+         n = n.parent;
+      }
+   }
+
+   /**
+    * @param n
+    * @return the node or null when it expired
+    */
+   private Node live(Node n) {
+      if (n != null && ttl > 0) {
+         long created = n.created;
+         if (created != 0 && System.nanoTime() - created > ttl) {
+            evict(n);
+            return null;
+         }
+      }
+      return n;
+   }
+
+   private static final AtomicIntegerFieldUpdater<Node> UNREGISTERED = AtomicIntegerFieldUpdater.newUpdater(Node.class, "unregistered");
+
+   /**
+    * Count a hit without locking, in a bounded cache the node is queued on its first hit since the eviction order was
+    * last updated. The hits are registered in the eviction order when a value is stored.
+    *
+    * @param n
+    */
+   private void hit(Node n) {
+      hits.increment();
+      if (bounded && UNREGISTERED.getAndIncrement(n) == 0) {
+         accessed.add(n);
+      }
+      cacheHit(true);
+   }
+
+   /**
+    * register the hits counted since the last call in the eviction order, guarded by this
+    */
+   private void registerHits() {
+      Queue<Node> a = accessed;
+      Node n;
+      while ((n = a.poll()) != null) {
+         int h = UNREGISTERED.getAndSet(n, 0);
+         if (queue != null && n.weight > 0 && h > 0) {
+            queue.access(n, h);
+         }
+      }
+   }
+
+   private void miss() {
+      misses.increment();
+      cacheHit(false);
+   }
+
+   /**
+    * account for a value added to a node and evict entries when the cache is too big
+    *
+    * @param n
+    * @param value
+    * @param primitive
+    */
+   private void stored(Node n, Object value, boolean primitive) {
+      if (!bounded) {
+         return;
+      }
+      synchronized (this) {
+         registerHits();
+         if (n.detached || queue == null) {
+            return;
+         }
+         long w = weighed ? (primitive ? 8 : weigh(value)) : n.weight == 0 ? 1 : 0;
+         if (n.weight == 0) {
+            queue.add(n);
+            n.created = System.nanoTime();
+         }
+         n.weight += w;
+         weight += w;
+         while (weight > maximum) {
+            Node victim = queue.victim();
+            if (victim == null) {
+               break;
+            }
+            evict(victim);
+         }
+      }
+   }
+
+   /**
+    * Estimate the size in bytes of a value.
+    *
+    * @param value
+    * @return
+    */
+   static long weigh(Object value) {
+      if (value == null) {
+         return 8;
+      } else if (value instanceof String str) {
+         return 40 + 2L * str.length();
+      } else if (value instanceof Optional<?> o) {
+         return 16 + weigh(o.orElse(null));
+      } else if (value instanceof Object[] a) {
+         long w = 16 + 4L * a.length;
+         for (Object o : a) {
+            w += weigh(o);
+         }
+         return w;
+      } else if (value.getClass().isArray()) {
+         Class<?> c = value.getClass().getComponentType();
+         int size = c == long.class || c == double.class ? 8 : c == int.class || c == float.class ? 4
+             : c == short.class || c == char.class ? 2 : 1;
+         return 16 + (long) size * Array.getLength(value);
+      }
+      return 32;
+   }
+
+   @Override
+   public void putAll(Map<? extends String, ? extends String[]> m) {
+      super.putAll(m);
+      List<String> keys = new ArrayList<>(m.keySet());
+      whenPublished(() -> invalidate(keys));
+   }
+
+   @Override
+   public void put(Map<String, String> m) {
+      super.put(m);
+      List<String> keys = new ArrayList<>(m.keySet());
+      whenPublished(() -> invalidate(keys));
+   }
+
+   @Override
+   public void clear() {
+      super.clear();
+      whenPublished(this::clearCache);
    }
 
    @Override
@@ -134,8 +826,9 @@ public class CachingProperties extends AbstractPropertiesDecorator {
 
    @Override
    public String[] put(String key, String[] value) {
-       cache.entrySet().removeIf(next -> next.getKey().contains(String.valueOf(key)));
-      return super.put(key, value);
+      String[] old = super.put(key, value);
+      whenPublished(() -> invalidate(key));
+      return old;
    }
 
    @Override
@@ -281,8 +974,96 @@ public class CachingProperties extends AbstractPropertiesDecorator {
         return fromCache(clazz, keys);
     }
 
-    public void clearCache() {
-       cache.clear();
+   @Override
+   public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+      Node n = live(find(keys));
+      if (n != null && n.has(Node.ABSENT)) {
+         hit(n);
+         return null;
+      }
+      if (n == null || n.slot(clazz, false) == null) {
+         // find the node before looking, a value put meanwhile detaches it
+         n = node(keys);
+         if (absent(keys)) {
+            miss();
+            absent(n, 0);
+            return null;
+         }
+      }
+      try {
+         return new Found<>(fromCache(null, clazz, keys));
+      } catch (NoValueException ex) {
+         // removed after looking
+         if (absent(keys)) {
+            return null;
+         }
+         throw ex;
+      }
    }
 
+    private void cacheHit(boolean hit) {
+       SettingsStats st = stats;
+       if (st != null) {
+          if (hit) {
+             st.cacheHit();
+          } else {
+             st.cacheMiss();
+          }
+       }
+    }
+
+    @Override
+    public void setStats(SettingsStats stats) {
+       this.stats = stats;
+    }
+
+    /**
+     * @return the number of values cached
+     */
+    public int getCacheSize() {
+       return root.size();
+    }
+
+    public synchronized void clearCache() {
+       root = new Node(null, null);
+       byKey = new ConcurrentHashMap<>();
+       queue = bounded ? eviction.queue() : null;
+       accessed = new ConcurrentLinkedQueue<>();
+       weight = 0;
+    }
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    public long getHits() {
+       return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups not served from the cache
+     */
+    public long getMisses() {
+       return misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted because the cache was full or the entry expired
+     */
+    public long getEvictions() {
+       return evictions.sum();
+    }
+
+    /**
+     * @return the weight of the entries in a bounded cache, the number of entries when not weighed
+     */
+    public synchronized long getWeight() {
+       return weight;
+    }
+
+    @Serial
+    private void readObject(java.io.ObjectInputStream s) throws IOException, ClassNotFoundException {
+       s.defaultReadObject();
+       clearCache();
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.beans.PropertyChangeEvent;
+import java.io.Serial;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All changes of a batch in one event, see {@link ObservableProperties#batch(com.vectorprint.configuration.VersionedSettings.Changes) }.
+ * As for any {@link PropertyChangeEvent} without a property name the event means several properties changed, old and
+ * new value are null. For each key the change holds the value before the batch and the value after it.
+ */
+public class ChangeSetEvent extends PropertyChangeEvent {
+
+   @Serial
+   private static final long serialVersionUID = 1;
+   private final Map<String, PropertyChangeEvent> changes;
+
+   /**
+    * @param source
+    * @param changes the changes in the order they were made, at most one per key
+    */
+   public ChangeSetEvent(Object source, Collection<PropertyChangeEvent> changes) {
+      super(source, null, null, null);
+      Map<String, PropertyChangeEvent> m = new LinkedHashMap<>(changes.size() * 2);
+      changes.forEach(c -> m.put(c.getPropertyName(), c));
+      this.changes = Collections.unmodifiableMap(m);
+   }
+
+   /**
+    * @return the changes in the order they were made
+    */
+   public Collection<PropertyChangeEvent> getChanges() {
+      return changes.values();
+   }
+
+   public Set<String> getKeys() {
+      return changes.keySet();
+   }
+
+   /**
+    * @param key
+    * @return the change for a key or null
+    */
+   public PropertyChangeEvent getChange(String key) {
+      return changes.get(key);
+   }
+
+   @Override
+   public String toString() {
+      return getClass().getName() + "[keys=" + getKeys() + "; source=" + getSource() + "]";
+   }
+}
@@ -0,0 +1,48 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * How a bounded {@link CachingProperties} chooses the entry to evict.
+ */
+public enum EvictionPolicy {
+   /**
+    * evict the least recently used entry
+    */
+   LRU {
+      @Override
+      <E> EvictionQueue<E> queue() {
+         return new EvictionQueue.Lru<>();
+      }
+   },
+   /**
+    * evict the least frequently used entry, the least recently used of those when there is a tie
+    */
+   LFU {
+      @Override
+      <E> EvictionQueue<E> queue() {
+         return new EvictionQueue.Lfu<>();
+      }
+   };
+
+   abstract <E> EvictionQueue<E> queue();
+}
@@ -0,0 +1,170 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Keeps track of the order in which cache entries should be evicted.
+ *
+ * @param <E> the entry type
+ */
+abstract class EvictionQueue<E> {
+
+   /**
+    * start tracking an entry
+    *
+    * @param e
+    */
+   abstract void add(E e);
+
+   /**
+    * register cache hits for an entry
+    *
+    * @param e
+    * @param hits the number of hits since the last registration
+    */
+   abstract void access(E e, int hits);
+
+   /**
+    * stop tracking an entry
+    *
+    * @param e
+    */
+   abstract void remove(E e);
+
+   /**
+    * @return the entry to evict next or null
+    */
+   abstract E victim();
+
+   abstract int size();
+
+   static final class Lru<E> extends EvictionQueue<E> {
+
+      private final LinkedHashMap<E, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+      @Override
+      void add(E e) {
+         order.put(e, Boolean.TRUE);
+      }
+
+      @Override
+      void access(E e, int hits) {
+         order.get(e);
+      }
+
+      @Override
+      void remove(E e) {
+         order.remove(e);
+      }
+
+      @Override
+      E victim() {
+         Iterator<E> it = order.keySet().iterator();
+         return it.hasNext() ? it.next() : null;
+      }
+
+      @Override
+      int size() {
+         return order.size();
+      }
+   }
+
+   /**
+    * entries are kept in buckets per frequency, each bucket in insertion order
+    *
+    * @param <E>
+    */
+   static final class Lfu<E> extends EvictionQueue<E> {
+
+      private final Map<E, Integer> frequencies = new HashMap<>();
+      private final Map<Integer, LinkedHashSet<E>> buckets = new HashMap<>();
+      private int min;
+
+      @Override
+      void add(E e) {
+         if (frequencies.putIfAbsent(e, 1) == null) {
+            bucket(1).add(e);
+            min = 1;
+         }
+      }
+
+      @Override
+      void access(E e, int hits) {
+         Integer f = frequencies.get(e);
+         if (f == null) {
+            return;
+         }
+         LinkedHashSet<E> b = buckets.get(f);
+         b.remove(e);
+         if (b.isEmpty()) {
+            buckets.remove(f);
+            if (min == f) {
+               min = f + 1;
+            }
+         }
+         int nf = f + hits < f ? Integer.MAX_VALUE : f + hits;
+         frequencies.put(e, nf);
+         bucket(nf).add(e);
+      }
+
+      private LinkedHashSet<E> bucket(int f) {
+         return buckets.computeIfAbsent(f, k -> new LinkedHashSet<>());
+      }
+
+      @Override
+      void remove(E e) {
+         Integer f = frequencies.remove(e);
+         if (f != null) {
+            LinkedHashSet<E> b = buckets.get(f);
+            b.remove(e);
+            if (b.isEmpty()) {
+               buckets.remove(f);
+            }
+         }
+      }
+
+      @Override
+      E victim() {
+         if (frequencies.isEmpty()) {
+            return null;
+         }
+         LinkedHashSet<E> b = buckets.get(min);
+         if (b == null) {
+            // min is stale after a removal, find the lowest frequency present
+            min = buckets.keySet().stream().min(Integer::compare).get();
+            b = buckets.get(min);
+         }
+         return b.iterator().next();
+      }
+
+      @Override
+      int size() {
+         return frequencies.size();
+      }
+   }
+}
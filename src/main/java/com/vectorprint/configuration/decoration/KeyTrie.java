@@ -0,0 +1,213 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Values subscribed to exact keys, key prefixes or glob patterns, indexed by character so finding the values for a key
+ * only visits the nodes on the path of that key. In a glob '*' matches any characters and '?' one character, a glob is
+ * indexed by its part before the first wildcard. Matching does not lock, subscribing and removing are synchronized.
+ *
+ * @param <V>
+ */
+public final class KeyTrie<V> {
+
+   private final Node<V> root = new Node<>();
+
+   private static final class Node<V> {
+
+      private final Map<Character, Node<V>> children = new ConcurrentHashMap<>(4);
+      private volatile List<V> exact = List.of();
+      private volatile List<V> prefix = List.of();
+      private volatile List<Glob<V>> globs = List.of();
+
+      private boolean isEmpty() {
+         return children.isEmpty() && exact.isEmpty() && prefix.isEmpty() && globs.isEmpty();
+      }
+   }
+
+   private record Glob<V>(Pattern pattern, V value) {
+   }
+
+   /**
+    * subscribe to one key
+    *
+    * @param key
+    * @param value
+    */
+   public synchronized void add(String key, V value) {
+      Node<V> n = node(key);
+      n.exact = plus(n.exact, value);
+   }
+
+   /**
+    * subscribe to all keys starting with a prefix, the empty prefix matches all keys
+    *
+    * @param prefix
+    * @param value
+    */
+   public synchronized void addPrefix(String prefix, V value) {
+      Node<V> n = node(prefix);
+      n.prefix = plus(n.prefix, value);
+   }
+
+   /**
+    * subscribe to all keys matching a glob, a glob without wildcards subscribes to one key
+    *
+    * @param glob
+    * @param value
+    */
+   public synchronized void addGlob(String glob, V value) {
+      int wildcard = 0;
+      while (wildcard < glob.length() && glob.charAt(wildcard) != '*' && glob.charAt(wildcard) != '?') {
+         wildcard++;
+      }
+      if (wildcard == glob.length()) {
+         add(glob, value);
+         return;
+      }
+      StringBuilder regex = new StringBuilder(glob.length() + 8);
+      int literal = wildcard;
+      for (int i = wildcard; i < glob.length(); i++) {
+         char c = glob.charAt(i);
+         if (c == '*' || c == '?') {
+            if (literal < i) {
+               regex.append(Pattern.quote(glob.substring(literal, i)));
+            }
+            regex.append(c == '*' ? ".*" : ".");
+            literal = i + 1;
+         }
+      }
+      if (literal < glob.length()) {
+         regex.append(Pattern.quote(glob.substring(literal)));
+      }
+      Node<V> n = node(glob.substring(0, wildcard));
+      n.globs = plus(n.globs, new Glob<>(Pattern.compile(regex.toString()), value));
+   }
+
+   /**
+    * remove all subscriptions of a value
+    *
+    * @param value
+    * @return true when a subscription was removed
+    */
+   public synchronized boolean remove(V value) {
+      return remove(root, value);
+   }
+
+   private boolean remove(Node<V> n, V value) {
+      boolean removed = false;
+      if (n.exact.contains(value)) {
+         n.exact = minus(n.exact, value);
+         removed = true;
+      }
+      if (n.prefix.contains(value)) {
+         n.prefix = minus(n.prefix, value);
+         removed = true;
+      }
+      if (n.globs.stream().anyMatch(g -> g.value().equals(value))) {
+         n.globs = n.globs.stream().filter(g -> !g.value().equals(value)).toList();
+         removed = true;
+      }
+      for (Map.Entry<Character, Node<V>> child : n.children.entrySet()) {
+         if (remove(child.getValue(), value)) {
+            removed = true;
+            if (child.getValue().isEmpty()) {
+               n.children.remove(child.getKey());
+            }
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * @param key
+    * @return the values subscribed to the key, its prefixes or a glob matching it, each value once
+    */
+   public Set<V> match(String key) {
+      Set<V> rv = new LinkedHashSet<>(4);
+      Node<V> n = root;
+      int i = 0;
+      while (n != null) {
+         rv.addAll(n.prefix);
+         for (Glob<V> g : n.globs) {
+            if (g.pattern().matcher(key).region(i, key.length()).matches()) {
+               rv.add(g.value());
+            }
+         }
+         if (i == key.length()) {
+            rv.addAll(n.exact);
+            break;
+         }
+         n = n.children.get(key.charAt(i++));
+      }
+      return rv;
+   }
+
+   public boolean isEmpty() {
+      return root.isEmpty();
+   }
+
+   /**
+    * @return a trie with the same subscriptions, changes to one do not affect the other
+    */
+   public synchronized KeyTrie<V> copy() {
+      KeyTrie<V> copy = new KeyTrie<>();
+      copy(root, copy.root);
+      return copy;
+   }
+
+   private static <V> void copy(Node<V> from, Node<V> to) {
+      to.exact = from.exact;
+      to.prefix = from.prefix;
+      to.globs = from.globs;
+      from.children.forEach((c, child) -> copy(child, to.children.computeIfAbsent(c, k -> new Node<>())));
+   }
+
+   private Node<V> node(String path) {
+      Node<V> n = root;
+      for (int i = 0; i < path.length(); i++) {
+         n = n.children.computeIfAbsent(path.charAt(i), c -> new Node<>());
+      }
+      return n;
+   }
+
+   private static <T> List<T> plus(List<T> list, T value) {
+      List<T> l = new ArrayList<>(list.size() + 1);
+      l.addAll(list);
+      l.add(value);
+      return List.copyOf(l);
+   }
+
+   private static <T> List<T> minus(List<T> list, T value) {
+      List<T> l = new ArrayList<>(list);
+      l.removeIf(value::equals);
+      return List.copyOf(l);
+   }
+}
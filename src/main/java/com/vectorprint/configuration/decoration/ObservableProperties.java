@@ -22,32 +22,344 @@ package com.vectorprint.configuration.decoration;
  */
 
 
+import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.SettingsQuery;
+import com.vectorprint.configuration.VersionedSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+/**
+ * Notifies {@link PropertyChangeListener observers} of changes. By default each change is fired synchronously. When
+ * created with an {@link #ObservableProperties(EnhancedMap, Executor, int) executor} changes are coalesced: observers
+ * receive a {@link ChangeSetEvent} for each change and one for all changes of a {@link #batch(VersionedSettings.Changes) batch},
+ * such as a reload. With {@link VersionedSettings} beneath observers are notified after the new version is published.
+ * Events are delivered on the executor in order for each observer, each observer has a bounded queue,
+ * a change waits when an observer's queue is full, unless it is made by an observer during delivery. Observers {@link #addObserver(String, PropertyChangeListener) subscribed}
+ * to keys, prefixes or globs only receive changes of keys they subscribed to, found via a {@link KeyTrie}.
+ */
 public class ObservableProperties extends AbstractPropertiesDecorator {
 
-   private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
+   private PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
    private static final Logger LOGGER = LoggerFactory.getLogger(ObservableProperties.class.getName());
 
+   /**
+    * the default for coalesced notification, a virtual thread per delivery
+    */
+   private static final Executor VIRTUAL = r -> Thread.ofVirtual().name("settings-observer").start(r);
+   public static final int DEFAULT_CAPACITY = 64;
+
+   private final boolean coalescing;
+   private final int capacity;
+   private transient Executor executor;
+   private transient volatile Map<PropertyChangeListener, Delivery> deliveries;
+   private transient volatile KeyTrie<PropertyChangeListener> subscriptions;
+   /**
+    * the thread running a batch and the changes collected, only accessed by that thread
+    */
+   private transient volatile Thread batcher;
+   private transient Map<String, PropertyChangeEvent> pending;
+   private Object batchLock = new Object[0];
+
    public ObservableProperties(EnhancedMap settings) {
       super(settings);
+      coalescing = false;
+      capacity = 0;
+   }
+
+   /**
+    * Observable settings that coalesce changes into {@link ChangeSetEvent}s delivered asynchronously.
+    *
+    * @param settings
+    * @param executor the executor to deliver events on, null means a virtual thread for each delivery
+    * @param capacity the maximum number of events waiting for an observer
+    */
+   public ObservableProperties(EnhancedMap settings, Executor executor, int capacity) {
+      super(settings);
+      if (capacity < 1) {
+         throw new VectorPrintRuntimeException(String.format("capacity (%s) should be at least 1", capacity));
+      }
+      coalescing = true;
+      this.capacity = capacity;
+      this.executor = executor;
+   }
+
+   /**
+    * Make changes and notify observers once for all of them. When changes are not {@link #isCoalescing() coalesced}
+    * observers are notified of each change.
+    *
+    * @param <E>
+    * @param changes
+    * @throws E
+    */
+   public <E extends Exception> void batch(VersionedSettings.Changes<E> changes) throws E {
+      if (!coalescing || batcher == Thread.currentThread()) {
+         changes.apply();
+         return;
+      }
+      List<PropertyChangeEvent> changed = new ArrayList<>();
+      try {
+         synchronized (batchLock) {
+            batcher = Thread.currentThread();
+            pending = new LinkedHashMap<>();
+            try {
+               changes.apply();
+            } finally {
+               pending.values().forEach(e -> {
+                  if (!Objects.deepEquals(e.getOldValue(), e.getNewValue())) {
+                     changed.add(e);
+                  }
+               });
+               pending = null;
+               batcher = null;
+            }
+         }
+      } finally {
+         // delivered after releasing the lock, an observer may write while its queue is full
+         if (!changed.isEmpty()) {
+            ChangeSetEvent event = new ChangeSetEvent(this, changed);
+            whenPublished(() -> deliver(event));
+         }
+      }
+   }
+
+   public boolean isCoalescing() {
+      return coalescing;
+   }
+
+   private void changed(String key, String[] old, String[] value) {
+      if (!coalescing) {
+         whenPublished(() -> fire(key, old, value));
+      } else if (batcher == Thread.currentThread()) {
+         pending.merge(key, new PropertyChangeEvent(this, key, old, value),
+             (first, last) -> new PropertyChangeEvent(this, key, first.getOldValue(), last.getNewValue()));
+      } else {
+         ChangeSetEvent event = new ChangeSetEvent(this, List.of(new PropertyChangeEvent(this, key, old, value)));
+         whenPublished(() -> deliver(event));
+      }
+   }
+
+   private void fire(String key, String[] old, String[] value) {
+      propertyChangeSupport.firePropertyChange(key, old, value);
+      KeyTrie<PropertyChangeListener> s = subscriptions;
+      if (s != null) {
+         Set<PropertyChangeListener> subscribed = s.match(key);
+         if (!subscribed.isEmpty()) {
+            PropertyChangeEvent event = new PropertyChangeEvent(this, key, old, value);
+            subscribed.forEach(l -> l.propertyChange(event));
+         }
+      }
+   }
+
+   private void deliver(ChangeSetEvent event) {
+      Map<PropertyChangeListener, Delivery> d = deliveries;
+      if (d == null) {
+         synchronized (batchLock) {
+            if ((d = deliveries) == null) {
+               deliveries = d = new ConcurrentHashMap<>();
+            }
+         }
+      }
+      List<Delivery> offered = new ArrayList<>();
+      for (PropertyChangeListener l : propertyChangeSupport.getPropertyChangeListeners()) {
+         offered.add(d.computeIfAbsent(l, Delivery::new).offer(event));
+      }
+      KeyTrie<PropertyChangeListener> s = subscriptions;
+      if (s != null) {
+         Map<PropertyChangeListener, List<PropertyChangeEvent>> routed = new LinkedHashMap<>();
+         for (PropertyChangeEvent change : event.getChanges()) {
+            for (PropertyChangeListener l : s.match(change.getPropertyName())) {
+               routed.computeIfAbsent(l, k -> new ArrayList<>()).add(change);
+            }
+         }
+         Map<PropertyChangeListener, Delivery> dl = d;
+         routed.forEach((l, changes) -> offered.add(dl.computeIfAbsent(l, Delivery::new).offer(
+             changes.size() == event.getKeys().size() ? event : new ChangeSetEvent(this, changes))));
+      }
+      if (!DELIVERING.get()) {
+         offered.forEach(Delivery::awaitRoom);
+      }
+   }
+
+   /**
+    * true for a thread delivering events, it never waits for room in a queue, an observer writing settings could
+    * otherwise wait for itself
+    */
+   private static final ThreadLocal<Boolean> DELIVERING = ThreadLocal.withInitial(() -> false);
+
+   /**
+    * Events waiting for one observer, delivered one after the other on the executor.
+    */
+   private final class Delivery implements Runnable {
+
+      private final PropertyChangeListener listener;
+      /**
+       * guarded by this
+       */
+      private final Deque<PropertyChangeEvent> queue = new ArrayDeque<>(capacity);
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+
+      private Delivery(PropertyChangeListener listener) {
+         this.listener = listener;
+      }
+
+      /**
+       * queue an event without waiting, see {@link #awaitRoom() }
+       *
+       * @param event
+       * @return this delivery
+       */
+      private Delivery offer(PropertyChangeEvent event) {
+         synchronized (this) {
+            queue.add(event);
+         }
+         schedule();
+         return this;
+      }
+
+      /**
+       * wait until no more than capacity events are queued
+       */
+      private synchronized void awaitRoom() {
+         try {
+            while (queue.size() > capacity) {
+               wait();
+            }
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VectorPrintRuntimeException(ex);
+         }
+      }
+
+      private synchronized PropertyChangeEvent next() {
+         PropertyChangeEvent event = queue.poll();
+         if (event != null && queue.size() <= capacity) {
+            notifyAll();
+         }
+         return event;
+      }
+
+      private synchronized boolean isEmpty() {
+         return queue.isEmpty();
+      }
+
+      private void schedule() {
+         if (scheduled.compareAndSet(false, true)) {
+            Executor e = executor;
+            (e == null ? VIRTUAL : e).execute(this);
+         }
+      }
+
+      @Override
+      public void run() {
+         DELIVERING.set(true);
+         try {
+            PropertyChangeEvent event;
+            while ((event = next()) != null) {
+               try {
+                  listener.propertyChange(event);
+               } catch (RuntimeException ex) {
+                  LOGGER.error(String.format("%s failed to handle %s", listener, event), ex);
+               }
+            }
+         } finally {
+            DELIVERING.remove();
+         }
+         scheduled.set(false);
+         if (!isEmpty()) {
+            schedule();
+         }
+      }
    }
 
    public void addObserver(PropertyChangeListener o) {
       propertyChangeSupport.addPropertyChangeListener(o);
    }
 
+   /**
+    * Observe changes of one key.
+    *
+    * @param key
+    * @param o
+    */
+   public void addObserver(String key, PropertyChangeListener o) {
+      subscriptions().add(key, o);
+   }
+
+   /**
+    * Observe changes of keys starting with a prefix, for example "db.pool.".
+    *
+    * @param prefix
+    * @param o
+    */
+   public void addPrefixObserver(String prefix, PropertyChangeListener o) {
+      subscriptions().addPrefix(prefix, o);
+   }
+
+   /**
+    * Observe changes of keys matching a glob, '*' matches any characters, '?' one character.
+    *
+    * @param glob
+    * @param o
+    */
+   public void addGlobObserver(String glob, PropertyChangeListener o) {
+      subscriptions().addGlob(glob, o);
+   }
+
+   private KeyTrie<PropertyChangeListener> subscriptions() {
+      KeyTrie<PropertyChangeListener> s = subscriptions;
+      if (s == null) {
+         synchronized (batchLock) {
+            if ((s = subscriptions) == null) {
+               subscriptions = s = new KeyTrie<>();
+            }
+         }
+      }
+      return s;
+   }
+
+   /**
+    * Observe a group of settings, the query is resolved again and the result passed to the consumer when one of its
+    * keys changes.
+    *
+    * @param query
+    * @param consumer
+    * @return the listener added, use it to {@link #removeObserver(PropertyChangeListener) remove} the observer
+    */
+   public PropertyChangeListener addObserver(SettingsQuery query, Consumer<SettingsQuery.Result> consumer) {
+      PropertyChangeListener l = evt -> consumer.accept(query(query));
+      query.keys().forEach(k -> addObserver(k, l));
+      return l;
+   }
+
    public void removeObserver(PropertyChangeListener o) {
       propertyChangeSupport.removePropertyChangeListener(o);
+      KeyTrie<PropertyChangeListener> s = subscriptions;
+      if (s != null) {
+         s.remove(o);
+      }
+      Map<PropertyChangeListener, Delivery> d = deliveries;
+      if (d != null) {
+         d.remove(o);
+      }
    }
 
    @Override
@@ -61,7 +373,7 @@ public class ObservableProperties extends AbstractPropertiesDecorator {
    public String[] put(String key, String[] value) {
       String[] s = super.put(key, value);
       if (!Objects.deepEquals(s,value)) {
-         propertyChangeSupport.firePropertyChange(key, s, value);
+         changed(key, s, value);
       }
       return s;
    }
@@ -75,29 +387,72 @@ public class ObservableProperties extends AbstractPropertiesDecorator {
    public String[] remove(Object key) {
       String[] s = super.remove(key);
       if (s!=null) {
-         propertyChangeSupport.firePropertyChange(String.valueOf(key),s,null);
+         changed(String.valueOf(key), s, null);
       }
       return s;
    }
 
    @Override
    public void clear() {
-      if (!isEmpty()) {
-          try {
-              EnhancedMap old = clone();
-             super.clear();
-             old.forEach((k,v) -> propertyChangeSupport.firePropertyChange(k,v,null));
-          } catch (CloneNotSupportedException e) {
-              throw new RuntimeException(e);
-          }
+      batch(() -> inOneVersion(() -> {
+         Map<String, String[]> old = current();
+         super.clear();
+         old.forEach((k, v) -> changed(k, v, null));
+      }));
+   }
+
+   /**
+    * @return a copy of the settings beneath made in one pass, without marking keys as used
+    */
+   private Map<String, String[]> current() {
+      Map<String, String[]> current = new LinkedHashMap<>();
+      for (Map.Entry<String, String[]> e : super.entrySet()) {
+         current.put(e.getKey(), e.getValue());
       }
+      return current;
+   }
+
+   /**
+    * Make these settings equal to a snapshot in one pass over both, only keys added, changed or removed are written.
+    * Observers are notified of those keys only, in one {@link ChangeSetEvent} when {@link #isCoalescing() coalesced}.
+    * With {@link VersionedSettings} beneath the snapshot is published as one version.
+    *
+    * @param snapshot
+    * @return the number of keys added, changed or removed
+    */
+   public int applySnapshot(Map<String, String[]> snapshot) {
+      int[] changes = {0};
+      batch(() -> inOneVersion(() -> {
+         Map<String, String[]> current = current();
+         for (Map.Entry<String, String[]> e : snapshot.entrySet()) {
+            boolean present = current.containsKey(e.getKey());
+            String[] old = current.remove(e.getKey());
+            if (!present || !Objects.deepEquals(old, e.getValue())) {
+               super.put(e.getKey(), e.getValue());
+               changed(e.getKey(), old, e.getValue());
+               changes[0]++;
+            }
+         }
+         for (String k : current.keySet()) {
+            changed(k, super.remove(k), null);
+            changes[0]++;
+         }
+      }));
+      return changes[0];
    }
 
    @Override
    public EnhancedMap clone() throws CloneNotSupportedException {
       ObservableProperties observableProperties = (ObservableProperties) super.clone();
+      observableProperties.deliveries = null;
+      observableProperties.batchLock = new Object[0];
+      observableProperties.batcher = null;
+      observableProperties.pending = null;
+      observableProperties.propertyChangeSupport = new PropertyChangeSupport(observableProperties);
       Arrays.stream(propertyChangeSupport.getPropertyChangeListeners()).forEach(l ->
               observableProperties.propertyChangeSupport.addPropertyChangeListener(l));
+      KeyTrie<PropertyChangeListener> s = subscriptions;
+      observableProperties.subscriptions = s != null ? s.copy() : null;
       return observableProperties;
    }
 
@@ -0,0 +1,481 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.Found;
+import com.vectorprint.configuration.Settings;
+import com.vectorprint.configuration.SettingsQuery;
+import jakarta.validation.constraints.NotNull;
+
+import java.awt.*;
+import java.io.File;
+import java.io.Serial;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A small mutable overlay over shared base settings, for overrides per request or per tenant. Creating an overlay does
+ * not copy the base and does not register with it, writes go to the overlay only. A read checks the overlay first and
+ * falls through to the base for keys not overridden, so a {@link CachingProperties} in the base keeps serving its
+ * converted values and only overridden keys are converted per overlay.
+ * <p>When keys are looked up in order the first key present in the overlay or the base wins, removing a key from the
+ * overlay makes the value of the base visible again.</p>
+ */
+public class OverlayProperties extends AbstractPropertiesDecorator {
+
+   @Serial
+   private static final long serialVersionUID = 1;
+   private final EnhancedMap base;
+   /**
+    * created on the first write
+    */
+   private volatile Settings overlay;
+
+   /**
+    * @param base the shared settings, not changed through this overlay
+    */
+   public OverlayProperties(EnhancedMap base) {
+      super(base, true);
+      this.base = base;
+   }
+
+   private Settings overlay() {
+      Settings o = overlay;
+      if (o == null) {
+         synchronized (this) {
+            if ((o = overlay) == null) {
+               overlay = o = new Settings();
+            }
+         }
+      }
+      return o;
+   }
+
+   /**
+    * @param keys
+    * @return the key to read from the overlay or null to read from the base
+    */
+   private String overlaid(String... keys) {
+      Settings o = overlay;
+      if (o == null || o.isEmpty()) {
+         return null;
+      }
+      for (String k : keys) {
+         if (o.containsKey(k)) {
+            return k;
+         }
+         if (super.containsKey(k)) {
+            return null;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * @return the keys overridden in this overlay
+    */
+   public Set<String> getOverlaidKeys() {
+      Settings o = overlay;
+      return o == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(o.keySet()));
+   }
+
+   @Override
+   public boolean getBooleanProperty(Boolean defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getBooleanProperty(defaultValue, keys) : overlay.getBooleanProperty(defaultValue, key);
+   }
+
+   @Override
+   public Class getClassProperty(Class defaultValue, String... keys) throws ClassNotFoundException {
+      String key = overlaid(keys);
+      return key == null ? super.getClassProperty(defaultValue, keys) : overlay.getClassProperty(defaultValue, key);
+   }
+
+   @Override
+   public Class[] getClassProperties(Class[] defaultValue, String... keys) throws ClassNotFoundException {
+      String key = overlaid(keys);
+      return key == null ? super.getClassProperties(defaultValue, keys) : overlay.getClassProperties(defaultValue, key);
+   }
+
+   @Override
+   public Pattern getRegexProperty(Pattern defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getRegexProperty(defaultValue, keys) : overlay.getRegexProperty(defaultValue, key);
+   }
+
+   @Override
+   public Pattern[] getRegexProperties(Pattern[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getRegexProperties(defaultValue, keys) : overlay.getRegexProperties(defaultValue, key);
+   }
+
+   @Override
+   public Color getColorProperty(Color defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getColorProperty(defaultValue, keys) : overlay.getColorProperty(defaultValue, key);
+   }
+
+   @Override
+   public double getDoubleProperty(Double defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getDoubleProperty(defaultValue, keys) : overlay.getDoubleProperty(defaultValue, key);
+   }
+
+   @Override
+   public short getShortProperty(Short defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getShortProperty(defaultValue, keys) : overlay.getShortProperty(defaultValue, key);
+   }
+
+   @Override
+   public char getCharProperty(Character defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getCharProperty(defaultValue, keys) : overlay.getCharProperty(defaultValue, key);
+   }
+
+   @Override
+   public byte getByteProperty(Byte defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getByteProperty(defaultValue, keys) : overlay.getByteProperty(defaultValue, key);
+   }
+
+   @Override
+   public short[] getShortProperties(short[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getShortProperties(defaultValue, keys) : overlay.getShortProperties(defaultValue, key);
+   }
+
+   @Override
+   public char[] getCharProperties(char[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getCharProperties(defaultValue, keys) : overlay.getCharProperties(defaultValue, key);
+   }
+
+   @Override
+   public byte[] getByteProperties(byte[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getByteProperties(defaultValue, keys) : overlay.getByteProperties(defaultValue, key);
+   }
+
+   @Override
+   public float getFloatProperty(Float defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getFloatProperty(defaultValue, keys) : overlay.getFloatProperty(defaultValue, key);
+   }
+
+   @Override
+   public int getIntegerProperty(Integer defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getIntegerProperty(defaultValue, keys) : overlay.getIntegerProperty(defaultValue, key);
+   }
+
+   @Override
+   public long getLongProperty(Long defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getLongProperty(defaultValue, keys) : overlay.getLongProperty(defaultValue, key);
+   }
+
+   @Override
+   public String getProperty(String defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getProperty(defaultValue, keys) : overlay.getProperty(defaultValue, key);
+   }
+
+   @Override
+   public URL getURLProperty(URL defaultValue, String... keys) throws MalformedURLException {
+      String key = overlaid(keys);
+      return key == null ? super.getURLProperty(defaultValue, keys) : overlay.getURLProperty(defaultValue, key);
+   }
+
+   @Override
+   public File getFileProperty(File defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getFileProperty(defaultValue, keys) : overlay.getFileProperty(defaultValue, key);
+   }
+
+   @Override
+   public File[] getFileProperties(File[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getFileProperties(defaultValue, keys) : overlay.getFileProperties(defaultValue, key);
+   }
+
+   @Override
+   public String[] getStringProperties(String[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getStringProperties(defaultValue, keys) : overlay.getStringProperties(defaultValue, key);
+   }
+
+   @Override
+   public URL[] getURLProperties(URL[] defaultValue, String... keys) throws MalformedURLException {
+      String key = overlaid(keys);
+      return key == null ? super.getURLProperties(defaultValue, keys) : overlay.getURLProperties(defaultValue, key);
+   }
+
+   @Override
+   public float[] getFloatProperties(float[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getFloatProperties(defaultValue, keys) : overlay.getFloatProperties(defaultValue, key);
+   }
+
+   @Override
+   public double[] getDoubleProperties(double[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getDoubleProperties(defaultValue, keys) : overlay.getDoubleProperties(defaultValue, key);
+   }
+
+   @Override
+   public int[] getIntegerProperties(int[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getIntegerProperties(defaultValue, keys) : overlay.getIntegerProperties(defaultValue, key);
+   }
+
+   @Override
+   public long[] getLongProperties(long[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getLongProperties(defaultValue, keys) : overlay.getLongProperties(defaultValue, key);
+   }
+
+   @Override
+   public boolean[] getBooleanProperties(boolean[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getBooleanProperties(defaultValue, keys) : overlay.getBooleanProperties(defaultValue, key);
+   }
+
+   @Override
+   public Color[] getColorProperties(Color[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getColorProperties(defaultValue, keys) : overlay.getColorProperties(defaultValue, key);
+   }
+
+   @Override
+   public LocalDateTime getLocalDateTimeProperty(LocalDateTime defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getLocalDateTimeProperty(defaultValue, keys) : overlay.getLocalDateTimeProperty(defaultValue, key);
+   }
+
+   @Override
+   public LocalDateTime[] getLocalDateTimeProperties(LocalDateTime[] defaultValue, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getLocalDateTimeProperties(defaultValue, keys) : overlay.getLocalDateTimeProperties(defaultValue, key);
+   }
+
+   @Override
+   public int getInt(String key, int defaultValue) {
+      Settings o = overlay;
+      return o != null && o.containsKey(key) ? o.getInt(key, defaultValue) : super.getInt(key, defaultValue);
+   }
+
+   @Override
+   public long getLong(String key, long defaultValue) {
+      Settings o = overlay;
+      return o != null && o.containsKey(key) ? o.getLong(key, defaultValue) : super.getLong(key, defaultValue);
+   }
+
+   @Override
+   public double getDouble(String key, double defaultValue) {
+      Settings o = overlay;
+      return o != null && o.containsKey(key) ? o.getDouble(key, defaultValue) : super.getDouble(key, defaultValue);
+   }
+
+   @Override
+   public boolean getBoolean(String key, boolean defaultValue) {
+      Settings o = overlay;
+      return o != null && o.containsKey(key) ? o.getBoolean(key, defaultValue) : super.getBoolean(key, defaultValue);
+   }
+
+   @Override
+   public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getGenericProperty(defaultValue, clazz, keys) : overlay.getGenericProperty(defaultValue, clazz, key);
+   }
+
+   @Override
+   public <T> Optional<T> getOptional(Class<T> clazz, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.getOptional(clazz, keys) : overlay.getOptional(clazz, key);
+   }
+
+   @Override
+   public <T> Found<T> lookup(Class<T> clazz, String... keys) {
+      String key = overlaid(keys);
+      return key == null ? super.lookup(clazz, keys) : overlay.lookup(clazz, key);
+   }
+
+   /**
+    * Without overrides the query goes to the base in one go.
+    */
+   @Override
+   public SettingsQuery.Result query(SettingsQuery query) {
+      Settings o = overlay;
+      if (o == null || o.isEmpty()) {
+         return super.query(query);
+      }
+      return new SettingsQuery.Result(query, getVersion(), e -> resolve(e, query.isAllowNoValue()));
+   }
+
+   private <T> T resolve(SettingsQuery.Entry<T> e, boolean allowNoValue) {
+      if (allowNoValue && e.getDefaultValue() == null) {
+         Found<T> found = lookup(e.getType(), e.getKeys());
+         return found == null ? null : found.getValue();
+      }
+      return getGenericProperty(e.getDefaultValue(), e.getType(), e.getKeys());
+   }
+
+   /**
+    * changes when the base or the overlay changes, {@link #UNVERSIONED} when the base is
+    */
+   @Override
+   public long getVersion() {
+      Settings o = overlay;
+      long version = super.getVersion();
+      return version == UNVERSIONED || o == null ? version : version + o.getVersion();
+   }
+
+   @Override
+   public String[] get(Object key) {
+      Settings o = overlay;
+      return o != null && o.containsKey(key) ? o.get(key) : super.get(key);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      Settings o = overlay;
+      return (o != null && o.containsKey(key)) || super.containsKey(key);
+   }
+
+   @Override
+   public boolean containsValue(Object value) {
+      Settings o = overlay;
+      return (o != null && o.containsValue(value)) || super.containsValue(value);
+   }
+
+   @Override
+   public String[] put(String key, String value) {
+      return overlay().put(key, value);
+   }
+
+   @Override
+   public String[] put(String key, String[] value) {
+      return overlay().put(key, value);
+   }
+
+   @Override
+   public void put(Map<String, String> m) {
+      overlay().put(m);
+   }
+
+   @Override
+   public void putAll(Map<? extends String, ? extends String[]> m) {
+      overlay().putAll(m);
+   }
+
+   /**
+    * remove an override, the base is not changed
+    */
+   @Override
+   public String[] remove(Object key) {
+      Settings o = overlay;
+      return o == null ? null : o.remove(key);
+   }
+
+   /**
+    * remove all overrides, the base is not changed
+    */
+   @Override
+   public void clear() {
+      Settings o = overlay;
+      if (o != null) {
+         o.clear();
+      }
+   }
+
+   /**
+    * @return a copy of the keys of the base and the overlay
+    */
+   @Override
+   public @NotNull Set<String> keySet() {
+      return Collections.unmodifiableSet(merged().keySet());
+   }
+
+   /**
+    * @return a copy of the values visible through this overlay
+    */
+   @Override
+   public @NotNull Collection values() {
+      return Collections.unmodifiableCollection(merged().values());
+   }
+
+   /**
+    * @return a copy of the entries visible through this overlay
+    */
+   @Override
+   public @NotNull Set<Entry<String, String[]>> entrySet() {
+      return Collections.unmodifiableSet(merged().entrySet());
+   }
+
+   @Override
+   public int size() {
+      Settings o = overlay;
+      return o == null || o.isEmpty() ? super.size() : merged().size();
+   }
+
+   @Override
+   public boolean isEmpty() {
+      Settings o = overlay;
+      return (o == null || o.isEmpty()) && super.isEmpty();
+   }
+
+   private Map<String, String[]> merged() {
+      Map<String, String[]> m = new HashMap<>(super.entrySet().size() * 2);
+      for (Entry<String, String[]> e : super.entrySet()) {
+         m.put(e.getKey(), e.getValue());
+      }
+      Settings o = overlay;
+      if (o != null) {
+         m.putAll(o);
+      }
+      return m;
+   }
+
+   /**
+    * @return a new overlay over the same base with a copy of the overrides
+    */
+   @Override
+   public EnhancedMap clone() {
+      OverlayProperties clone = new OverlayProperties(base);
+      Settings o = overlay;
+      if (o != null && !o.isEmpty()) {
+         clone.overlay().putAll(o);
+      }
+      return clone;
+   }
+}
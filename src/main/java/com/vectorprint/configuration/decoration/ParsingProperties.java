@@ -28,11 +28,13 @@ import com.vectorprint.configuration.binding.AbstractBindingHelperDecorator;
 import com.vectorprint.configuration.binding.BindingHelper;
 import com.vectorprint.configuration.binding.settings.EnhancedMapBindingFactory;
 import com.vectorprint.configuration.binding.settings.SettingsBindingService;
+import com.vectorprint.configuration.jfr.ParseEvent;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
@@ -53,6 +55,11 @@ public class ParsingProperties extends AbstractPropertiesDecorator {
    private List<URL> propertyUrls = new ArrayList<>(3);
    private final Map<String, List<String>> commentBeforeKeys = new HashMap<>(50);
    private final List<String> trailingComment = new ArrayList<>(0);
+   /**
+    * the thread parsing while a {@link ParseEvent} is recorded and the number of keys it put
+    */
+   private transient volatile Thread counting;
+   private transient int parsedKeys;
    
    public ParsingProperties(EnhancedMap properties) {
       super(properties);
@@ -122,10 +129,78 @@ public class ParsingProperties extends AbstractPropertiesDecorator {
     * @throws IOException
     */
    protected void loadFromReader(Reader in) throws IOException {
+      if (!ParseEvent.enabled()) {
+         parse(in);
+         return;
+      }
+      ParseEvent event = new ParseEvent();
+      event.begin();
+      CountingReader reader = new CountingReader(in);
+      Thread outer = counting;
+      int outerKeys = parsedKeys;
+      counting = Thread.currentThread();
+      parsedKeys = 0;
+      int keys;
+      try {
+         parse(reader);
+      } finally {
+         keys = parsedKeys;
+         counting = outer;
+         parsedKeys = outerKeys + keys;
+      }
+      if (event.shouldCommit()) {
+         event.characters = reader.count;
+         event.keys = keys;
+         event.settingsId = getId();
+         event.commit();
+      }
+   }
+
+   @Override
+   public String[] put(String key, String value) {
+      return put(key, new String[]{value});
+   }
+
+   @Override
+   public String[] put(String key, String[] value) {
+      if (counting == Thread.currentThread()) {
+         parsedKeys++;
+      }
+      return super.put(key, value);
+   }
+
+   private void parse(Reader in) throws IOException {
       try (BufferedReader bi = new BufferedReader(in)) {
          SettingsBindingService.getInstance().getFactory().getParser(bi).parse(this);
       }
    }
+
+   private static class CountingReader extends FilterReader {
+
+      private long count;
+
+      private CountingReader(Reader in) {
+         super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+         int c = super.read();
+         if (c != -1) {
+            count++;
+         }
+         return c;
+      }
+
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+         int n = super.read(cbuf, off, len);
+         if (n > 0) {
+            count += n;
+         }
+         return n;
+      }
+   }
    
    /**
     * calls {@link #addFromURL(java.net.URL) }.
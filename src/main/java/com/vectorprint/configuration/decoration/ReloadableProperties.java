@@ -1,6 +1,10 @@
 package com.vectorprint.configuration.decoration;
 
 import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.VersionedSettings;
+import com.vectorprint.configuration.jfr.ReloadEvent;
+import com.vectorprint.configuration.management.SettingsStats;
+import com.vectorprint.configuration.management.StatsAware;
 import org.apache.commons.io.monitor.FileAlterationListener;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
 import org.apache.commons.io.monitor.FileAlterationMonitor;
@@ -14,19 +18,28 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Watches files (only those via constructor arguments) for changes and reloads settings in those files.
  */
-public class ReloadableProperties extends ParsingProperties implements HiddenBy {
+public class ReloadableProperties extends ParsingProperties implements HiddenBy, StatsAware {
 
     public static final int POLL_INTERVAL = 10000;
 
+    private transient volatile SettingsStats stats;
+    /**
+     * keys put during a reload, null when not reloading
+     */
+    private Set<String> reloaded;
+    private transient FileAlterationMonitor monitor;
+
     public ReloadableProperties(EnhancedMap properties, int interval, File... files) throws IOException {
         super(properties, files);
-        FileAlterationMonitor monitor = new FileAlterationMonitor(interval);
+        monitor = new FileAlterationMonitor(interval);
         Map<File,List<File>> toObserve = new HashMap<>();
         for (File f : files) {
             File dir = f.getParentFile();
@@ -66,6 +79,22 @@ public class ReloadableProperties extends ParsingProperties implements HiddenBy
         }
     }
 
+    /**
+     * Stop watching the files for changes.
+     *
+     * @throws IOException
+     */
+    public void stopWatching() throws IOException {
+        FileAlterationMonitor m = monitor;
+        if (m != null) {
+            try {
+                m.stop();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
     public ReloadableProperties(EnhancedMap properties, String... files) throws IOException {
         this(properties, getFiles(files));
     }
@@ -84,12 +113,81 @@ public class ReloadableProperties extends ParsingProperties implements HiddenBy
 
     /**
      * This method does not clear existing settings, it just parses the changed property file.
-     * Registered {@link java.beans.PropertyChangeListener Observers} will be notified of changes.
+     * Registered {@link java.beans.PropertyChangeListener Observers} will be notified of changes, in one event when
+     * {@link ObservableProperties#isCoalescing() coalesced}. When the settings beneath are {@link VersionedSettings}
+     * the changes are published as one new version after parsing.
      * @param file
      * @throws IOException
      */
     protected void reload(Path file) throws IOException {
-        loadFromReader(new FileReader(file.toFile()));
+        reloaded = new HashSet<>();
+        try {
+            SettingsStats s = stats;
+            long start = s != null ? System.nanoTime() : 0;
+            List<ObservableProperties> observable = getStackIndex().layers(ObservableProperties.class);
+            if (observable.isEmpty()) {
+                inOneVersion(() -> load(file));
+            } else {
+                observable.get(0).batch(() -> inOneVersion(() -> load(file)));
+            }
+            if (s != null) {
+                s.reloaded(System.nanoTime() - start);
+            }
+        } finally {
+            Set<String> keys = reloaded;
+            reloaded = null;
+            invalidateCaches(keys);
+        }
+    }
+
+    /**
+     * Invalidate the keys reloaded in one go in {@link CachingProperties} decorating this reloadable properties.
+     *
+     * @param keys
+     */
+    private void invalidateCaches(Set<String> keys) {
+        AbstractPropertiesDecorator outermost = getOutermostDecorator();
+        if (outermost != null && !keys.isEmpty()) {
+            outermost.getStackIndex().layers(CachingProperties.class).forEach(c -> c.invalidate(keys));
+        }
+    }
+
+    @Override
+    public String[] put(String key, String value) {
+        return put(key, new String[]{value});
+    }
+
+    @Override
+    public String[] put(String key, String[] value) {
+        if (reloaded != null) {
+            reloaded.add(key);
+        }
+        return super.put(key, value);
+    }
+
+    private void load(Path file) throws IOException {
+        if (!ReloadEvent.enabled()) {
+            loadFromReader(new FileReader(file.toFile()));
+            return;
+        }
+        ReloadEvent event = new ReloadEvent();
+        event.begin();
+        int keys = reloaded.size();
+        try {
+            loadFromReader(new FileReader(file.toFile()));
+            event.success = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.file = file.toString();
+                event.keys = reloaded.size() - keys;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void setStats(SettingsStats stats) {
+        this.stats = stats;
     }
 
     @Override
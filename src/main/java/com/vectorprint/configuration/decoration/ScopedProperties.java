@@ -0,0 +1,192 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.VectorPrintRuntimeException;
+import com.vectorprint.configuration.EnhancedMap;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.PrintStream;
+import java.io.Serial;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Settings that can only be accessed within a bounded scope, {@link #run(Runnable) } and {@link #call(Callable) } bind
+ * these settings to the current thread for the duration of the operation. Unlike {@link ThreadBoundProperties} nothing
+ * is copied into threads created and no reference remains after the scope ends, which suits (virtual) threads created
+ * per task. A thread started within a scope is not in scope, bind the settings in that thread when needed.
+ * <p>Scopes nest, checking access is a lookup of the innermost scope of the current thread.</p>
+ */
+public class ScopedProperties extends AbstractPropertiesDecorator implements HiddenBy {
+
+   @Serial
+   private static final long serialVersionUID = 1;
+   /**
+    * the innermost scope of the current thread, only set during {@link #run(Runnable) } or {@link #call(Callable) }
+    */
+   private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+   private record Scope(ScopedProperties bound, Scope outer) {
+   }
+
+   public ScopedProperties(EnhancedMap properties) {
+      super(properties);
+   }
+
+   /**
+    * run an operation in which these settings can be accessed from the current thread
+    *
+    * @param operation
+    */
+   public void run(Runnable operation) {
+      Scope outer = SCOPE.get();
+      SCOPE.set(new Scope(this, outer));
+      try {
+         operation.run();
+      } finally {
+         restore(outer);
+      }
+   }
+
+   /**
+    * call an operation in which these settings can be accessed from the current thread
+    *
+    * @param <T>
+    * @param operation
+    * @return the result of the operation
+    * @throws Exception thrown by the operation
+    */
+   public <T> T call(Callable<T> operation) throws Exception {
+      Scope outer = SCOPE.get();
+      SCOPE.set(new Scope(this, outer));
+      try {
+         return operation.call();
+      } finally {
+         restore(outer);
+      }
+   }
+
+   private static void restore(Scope outer) {
+      if (outer == null) {
+         SCOPE.remove();
+      } else {
+         SCOPE.set(outer);
+      }
+   }
+
+   /**
+    * @return true when the current thread runs in a scope of these settings
+    */
+   public boolean isBound() {
+      for (Scope s = SCOPE.get(); s != null; s = s.outer) {
+         if (s.bound == this) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void checkScope(String method) {
+      if (!isBound()) {
+         throw new VectorPrintRuntimeException(method + " not possible outside a scope of these settings: " + Thread.currentThread().getName());
+      }
+   }
+
+   @Override
+   public String[] put(String key, String value) {
+      checkScope("put");
+      return super.put(key, value);
+   }
+
+   @Override
+   public String[] put(String key, String[] value) {
+      checkScope("put");
+      return super.put(key, value);
+   }
+
+   @Override
+   public String[] get(Object key) {
+      checkScope("get");
+      return super.get(key);
+   }
+
+   @Override
+   public void clear() {
+      checkScope("clear");
+      super.clear();
+   }
+
+   @Override
+   public String[] remove(Object key) {
+      checkScope("remove");
+      return super.remove(key);
+   }
+
+   @Override
+   public EnhancedMap clone() throws CloneNotSupportedException {
+      checkScope("clone");
+      return super.clone();
+   }
+
+   @Override
+   public @NotNull Set<Entry<String, String[]>> entrySet() {
+      checkScope("entrySet");
+      return super.entrySet();
+   }
+
+   @Override
+   public @NotNull Collection values() {
+      checkScope("values");
+      return super.values();
+   }
+
+   @Override
+   public @NotNull Set<String> keySet() {
+      checkScope("keySet");
+      return super.keySet();
+   }
+
+   @Override
+   public boolean containsValue(Object value) {
+      checkScope("containsValue");
+      return super.containsValue(value);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      checkScope("containsKey");
+      return super.containsKey(key);
+   }
+
+   @Override
+   public void listProperties(PrintStream ps) {
+      checkScope("listProperties");
+      super.listProperties(ps);
+   }
+
+   @Override
+   public boolean hiddenBy(Class<? extends AbstractPropertiesDecorator> settings) {
+      return CachingProperties.class.isAssignableFrom(settings);
+   }
+}
@@ -21,32 +21,357 @@ package com.vectorprint.configuration.decoration;
  */
 
 
+
 import com.vectorprint.configuration.EnhancedMap;
 import jakarta.validation.constraints.NotNull;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Keys, entries and values in key order. The settings are indexed once and the index is kept up to date on writes via
+ * this decorator, the sets and collections returned are unmodifiable views on the index. When settings beneath are
+ * changed otherwise the {@link #getVersion() version} differs from the version indexed, or is {@link #UNVERSIONED}, and
+ * the index is synchronized on the next read, also when that read is through a view obtained before. The index holds the values as well, reading
+ * through the views does not mark keys as used. {@link #subMap(String, String) Ranges} and
+ * {@link #prefix(String) namespaces} are views as well, they do not copy or sort.
+ */
 public class SortedProperties extends AbstractPropertiesDecorator {
-   
+
+   /**
+    * stands for a null value in the index
+    */
+   private static final String[] NULL = new String[0];
+
+   private final Object indexLock = new Object[0];
+   private transient volatile ConcurrentSkipListMap<String, String[]> index;
+   private transient volatile long indexed;
+
    public SortedProperties(EnhancedMap settings) {
       super(settings);
    }
-   
-   private static final Comparator<Entry<String, String[]>> ECOMP = Entry.comparingByKey();
-   
+
+   private NavigableMap<String, String[]> index() {
+      ConcurrentSkipListMap<String, String[]> i = index;
+      long v = getVersion();
+      if (i != null && indexed == v && v != UNVERSIONED) {
+         return i;
+      }
+      synchronized (indexLock) {
+         long version = getVersion();
+         if (index == null || indexed != version || version == UNVERSIONED) {
+            // one pass over the entries, get would mark keys as used
+            Map<String, String[]> current = new HashMap<>();
+            for (Entry<String, String[]> e : super.entrySet()) {
+               current.put(e.getKey(), e.getValue() == null ? NULL : e.getValue());
+            }
+            if (index == null) {
+               index = new ConcurrentSkipListMap<>(current);
+            } else {
+               index.keySet().retainAll(current.keySet());
+               index.putAll(current);
+            }
+         }
+         indexed = version;
+         return index;
+      }
+   }
+
+   /**
+    * @param range a view on the index
+    * @return the view after synchronizing the index, the index is updated in place so the view stays valid
+    */
+   private NavigableMap<String, String[]> synced(NavigableMap<String, String[]> range) {
+      index();
+      return range;
+   }
+
+   private static String[] value(String[] indexed) {
+      return indexed == NULL ? null : indexed;
+   }
+
+   /**
+    * Apply a write to the settings beneath and the index, when the write is the only change since the index was
+    * synchronized the index stays up to date.
+    */
+   private <T> T write(Supplier<T> write, Consumer<NavigableMap<String, String[]>> update) {
+      synchronized (indexLock) {
+         long version = getVersion();
+         T rv = write.get();
+         ConcurrentSkipListMap<String, String[]> i = index;
+         if (i != null && indexed == version && getVersion() == version + 1) {
+            update.accept(i);
+            indexed = version + 1;
+         }
+         return rv;
+      }
+   }
+
+   @Override
+   public String[] put(String key, String value) {
+      return put(key, new String[]{value});
+   }
+
+   @Override
+   public String[] put(String key, String[] value) {
+      return write(() -> super.put(key, value), i -> i.put(key, value == null ? NULL : value));
+   }
+
+   @Override
+   public String[] remove(Object key) {
+      return write(() -> super.remove(key), i -> i.remove(key));
+   }
+
+   @Override
+   public void putAll(Map<? extends String, ? extends String[]> m) {
+      write(() -> {
+         super.putAll(m);
+         return null;
+      }, i -> m.forEach((k, v) -> i.put(k, v == null ? NULL : v)));
+   }
+
+   @Override
+   public void clear() {
+      write(() -> {
+         super.clear();
+         return null;
+      }, Map::clear);
+   }
+
    @Override
    public @NotNull Set<Entry<String, String[]>> entrySet() {
-      TreeSet<Entry<String, String[]>> treeSet = new TreeSet<>(ECOMP);
-      treeSet.addAll(super.entrySet());
-      return treeSet;
+      return new Entries(index());
    }
-   
+
    @Override
    public @NotNull Set<String> keySet() {
-      return new TreeSet<>(super.keySet());
+      return new Keys(index().navigableKeySet());
    }
 
+   @Override
+   public @NotNull Collection values() {
+      NavigableMap<String, String[]> range = index();
+      return new AbstractCollection<String[]>() {
+         @Override
+         public Iterator<String[]> iterator() {
+            Iterator<String[]> v = synced(range).values().iterator();
+            return new Iterator<>() {
+               @Override
+               public boolean hasNext() {
+                  return v.hasNext();
+               }
+
+               @Override
+               public String[] next() {
+                  return value(v.next());
+               }
+            };
+         }
+
+         @Override
+         public int size() {
+            return synced(range).size();
+         }
+      };
+   }
+
+   /**
+    * @param from inclusive
+    * @param to exclusive
+    * @return a view on the settings with keys in the range
+    */
+   public SortedMap<String, String[]> subMap(String from, String to) {
+      return new Range(index().subMap(from, true, to, false));
+   }
+
+   /**
+    * @param to exclusive
+    * @return a view on the settings with keys before to
+    */
+   public SortedMap<String, String[]> headMap(String to) {
+      return new Range(index().headMap(to, false));
+   }
+
+   /**
+    * @param from inclusive
+    * @return a view on the settings with keys from from
+    */
+   public SortedMap<String, String[]> tailMap(String from) {
+      return new Range(index().tailMap(from, true));
+   }
+
+   /**
+    * @param prefix for example "datasource."
+    * @return a view on the settings with keys starting with the prefix
+    */
+   public SortedMap<String, String[]> prefix(String prefix) {
+      int end = prefix.length();
+      while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+         end--;
+      }
+      if (end == 0) {
+         return prefix.isEmpty() ? new Range(index()) : tailMap(prefix);
+      }
+      return subMap(prefix, prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1));
+   }
+
+   @Override
+   public EnhancedMap clone() throws CloneNotSupportedException {
+      SortedProperties clone = (SortedProperties) super.clone();
+      clone.index = null;
+      return clone;
+   }
+
+   private final class Entries extends AbstractSet<Entry<String, String[]>> {
+
+      private final NavigableMap<String, String[]> range;
+
+      private Entries(NavigableMap<String, String[]> range) {
+         this.range = range;
+      }
+
+      @Override
+      public Iterator<Entry<String, String[]>> iterator() {
+         Iterator<Entry<String, String[]>> e = synced(range).entrySet().iterator();
+         return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+               return e.hasNext();
+            }
+
+            @Override
+            public Entry<String, String[]> next() {
+               Entry<String, String[]> n = e.next();
+               return new AbstractMap.SimpleImmutableEntry<>(n.getKey(), value(n.getValue()));
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return synced(range).size();
+      }
+   }
+
+   /**
+    * unmodifiable view on keys in a range of the index
+    */
+   private final class Keys extends AbstractSet<String> {
+
+      private final NavigableSet<String> keys;
+
+      private Keys(NavigableSet<String> keys) {
+         this.keys = keys;
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+         index();
+         Iterator<String> k = keys.iterator();
+         return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+               return k.hasNext();
+            }
+
+            @Override
+            public String next() {
+               return k.next();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         index();
+         return keys.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         index();
+         return keys.contains(o);
+      }
+   }
+
+   /**
+    * unmodifiable view on the settings with keys in a range of the index
+    */
+   private final class Range extends AbstractMap<String, String[]> implements SortedMap<String, String[]> {
+
+      private final NavigableMap<String, String[]> range;
+
+      private Range(NavigableMap<String, String[]> range) {
+         this.range = range;
+      }
+
+      @Override
+      public Set<Entry<String, String[]>> entrySet() {
+         return new Entries(range);
+      }
+
+      @Override
+      public Set<String> keySet() {
+         return new Keys(range.navigableKeySet());
+      }
+
+      @Override
+      public int size() {
+         return synced(range).size();
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+         return synced(range).containsKey(key);
+      }
+
+      @Override
+      public String[] get(Object key) {
+         return value(synced(range).get(key));
+      }
+
+      @Override
+      public Comparator<? super String> comparator() {
+         return null;
+      }
+
+      @Override
+      public SortedMap<String, String[]> subMap(String fromKey, String toKey) {
+         return new Range(range.subMap(fromKey, true, toKey, false));
+      }
+
+      @Override
+      public SortedMap<String, String[]> headMap(String toKey) {
+         return new Range(range.headMap(toKey, false));
+      }
+
+      @Override
+      public SortedMap<String, String[]> tailMap(String fromKey) {
+         return new Range(range.tailMap(fromKey, true));
+      }
+
+      @Override
+      public String firstKey() {
+         return synced(range).firstKey();
+      }
+
+      @Override
+      public String lastKey() {
+         return synced(range).lastKey();
+      }
+   }
 
 }
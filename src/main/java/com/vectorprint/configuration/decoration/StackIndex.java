@@ -0,0 +1,160 @@
+package com.vectorprint.configuration.decoration;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.configuration.EnhancedMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable index of a stack of decorators, built once when a decorator is constructed from the index of the decorator
+ * it wraps. Type checks are a bit lookup, layers of a type are computed once per type and remembered.
+ */
+final class StackIndex {
+
+    private static final AtomicInteger BITS = new AtomicInteger();
+
+    /**
+     * a bit for every class or interface that takes part in a stack
+     */
+    private static final ClassValue<Integer> BIT = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return BITS.getAndIncrement();
+        }
+    };
+
+    /**
+     * the bits of a class, its superclasses and all interfaces it implements
+     */
+    private static final ClassValue<BitSet> TYPE_BITS = new ClassValue<>() {
+        @Override
+        protected BitSet computeValue(Class<?> type) {
+            BitSet bits = new BitSet();
+            Deque<Class<?>> todo = new ArrayDeque<>();
+            todo.add(type);
+            while (!todo.isEmpty()) {
+                Class<?> c = todo.poll();
+                if (!bits.get(BIT.get(c))) {
+                    bits.set(BIT.get(c));
+                    if (c.getSuperclass() != null) {
+                        todo.add(c.getSuperclass());
+                    }
+                    todo.addAll(List.of(c.getInterfaces()));
+                }
+            }
+            return bits;
+        }
+    };
+
+    private final EnhancedMap[] layers;
+    /**
+     * the number of layers up to a decorator over shared settings, layers from there on belong to the shared stack
+     */
+    private final int own;
+    private final BitSet types;
+    private final Map<Class<?>, List<?>> byType = new ConcurrentHashMap<>(4);
+
+    /**
+     * @param outer the decorator being constructed
+     * @param inner the settings it decorates
+     * @param shared when true the inner settings are shared, they are not {@link #ownLayers(Class) owned} by this stack
+     */
+    StackIndex(AbstractPropertiesDecorator outer, EnhancedMap inner, boolean shared) {
+        BitSet bits = (BitSet) TYPE_BITS.get(outer.getClass()).clone();
+        if (inner instanceof AbstractPropertiesDecorator apd) {
+            StackIndex in = apd.getStackIndex();
+            layers = new EnhancedMap[in.layers.length + 1];
+            System.arraycopy(in.layers, 0, layers, 1, in.layers.length);
+            bits.or(in.types);
+            own = shared ? 1 : in.own + 1;
+        } else {
+            layers = new EnhancedMap[]{null, inner};
+            bits.or(TYPE_BITS.get(inner.getClass()));
+            own = shared ? 1 : 2;
+        }
+        layers[0] = outer;
+        types = bits;
+    }
+
+    /**
+     * @param type
+     * @return true when one of the layers is an instance of the type
+     */
+    boolean has(Class<?> type) {
+        return types.get(BIT.get(type));
+    }
+
+    /**
+     * @param <T>
+     * @param type
+     * @return the layers that are an instance of the type, outermost first
+     */
+    <T> List<T> layers(Class<T> type) {
+        if (!has(type)) {
+            return List.of();
+        }
+        return (List<T>) byType.computeIfAbsent(type, t -> {
+            List<T> l = new ArrayList<>(1);
+            for (EnhancedMap e : layers) {
+                if (type.isInstance(e)) {
+                    l.add(type.cast(e));
+                }
+            }
+            return List.copyOf(l);
+        });
+    }
+
+    /**
+     * @param <T>
+     * @param type
+     * @return the layers that are an instance of the type, outermost first, up to and including a decorator over
+     * shared settings
+     */
+    <T> List<T> ownLayers(Class<T> type) {
+        List<T> l = new ArrayList<>(1);
+        for (int i = 0; i < own; i++) {
+            if (type.isInstance(layers[i])) {
+                l.add(type.cast(layers[i]));
+            }
+        }
+        return l;
+    }
+
+    /**
+     * @return the number of layers including the innermost settings
+     */
+    int size() {
+        return layers.length;
+    }
+
+    EnhancedMap layer(int i) {
+        return layers[i];
+    }
+}
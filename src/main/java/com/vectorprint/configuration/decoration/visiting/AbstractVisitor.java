@@ -33,5 +33,12 @@ public abstract class AbstractVisitor<E extends EnhancedMap> implements Decorato
     public boolean shouldVisit(EnhancedMap e) {
         return clazz.isAssignableFrom(e.getClass());
     }
+
+    /**
+     * @return the type of settings this visitor visits
+     */
+    public Class<E> getVisitedClass() {
+        return clazz;
+    }
     
 }
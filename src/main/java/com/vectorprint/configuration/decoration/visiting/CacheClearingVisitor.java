@@ -23,14 +23,26 @@ package com.vectorprint.configuration.decoration.visiting;
 
 import com.vectorprint.configuration.decoration.CachingProperties;
 
+import java.util.List;
+
 /**
- * clears cache
+ * clears cache, or when keys are given only the cached values for those keys
  */
 public class CacheClearingVisitor extends AbstractVisitor<CachingProperties> {
 
+   private final List<String> keys;
+
+   public CacheClearingVisitor(String... keys) {
+      this.keys = List.of(keys);
+   }
+
    @Override
    public void visit(CachingProperties e) {
-      e.clearCache();
+      if (keys.isEmpty()) {
+         e.clearCache();
+      } else {
+         e.invalidate(keys);
+      }
    }
 
 
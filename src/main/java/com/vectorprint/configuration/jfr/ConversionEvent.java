@@ -0,0 +1,59 @@
+package com.vectorprint.configuration.jfr;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a {@link com.vectorprint.configuration.binding.BindingHelper} converts Strings to a value.
+ */
+@Name("com.vectorprint.configuration.Conversion")
+@Label("Settings Conversion")
+@Category({"VectorPrint", "Configuration"})
+@Description("Conversion of a String value to a typed value")
+@Enabled(false)
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(ConversionEvent.class);
+
+    @Label("Target Type")
+    public Class<?> targetType;
+
+    @Label("Values")
+    @Description("The number of Strings converted")
+    public int values;
+
+    /**
+     * @return true when the event is enabled in a running recording
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+}
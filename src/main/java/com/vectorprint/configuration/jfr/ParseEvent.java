@@ -0,0 +1,61 @@
+package com.vectorprint.configuration.jfr;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when {@link com.vectorprint.configuration.decoration.ParsingProperties} parse settings.
+ */
+@Name("com.vectorprint.configuration.Parse")
+@Label("Settings Parse")
+@Category({"VectorPrint", "Configuration"})
+@Description("Parsing of settings from a Reader")
+@Enabled(false)
+public class ParseEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(ParseEvent.class);
+
+    @Label("Characters")
+    @Description("The number of characters read")
+    public long characters;
+
+    @Label("Keys")
+    @Description("The number of key/value pairs put")
+    public long keys;
+
+    @Label("Settings Id")
+    public String settingsId;
+
+    /**
+     * @return true when the event is enabled in a running recording
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+}
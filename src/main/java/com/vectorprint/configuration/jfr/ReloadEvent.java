@@ -0,0 +1,60 @@
+package com.vectorprint.configuration.jfr;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when {@link com.vectorprint.configuration.decoration.ReloadableProperties} reload a changed file.
+ */
+@Name("com.vectorprint.configuration.Reload")
+@Label("Settings Reload")
+@Category({"VectorPrint", "Configuration"})
+@Description("Reload of a changed settings file")
+@Enabled(false)
+public class ReloadEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(ReloadEvent.class);
+
+    @Label("File")
+    public String file;
+
+    @Label("Keys")
+    @Description("The number of key/value pairs put")
+    public long keys;
+
+    @Label("Success")
+    public boolean success;
+
+    /**
+     * @return true when the event is enabled in a running recording
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,168 @@
+package com.vectorprint.configuration.management;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Central, opt in registry for reporting unused settings. Settings are only tracked when {@link #track(EnhancedMap) asked for}
+ * or when {@link #setTrackAll(boolean) all new settings} should be tracked, other settings pay nothing. Tracked settings
+ * are weakly referenced, unused keys can be reported on demand or {@link #reportAtShutdown(boolean) at shutdown}. Unused
+ * keys of tracked {@link Settings} that are garbage collected are kept for the report.
+ */
+public final class SettingsDiagnostics {
+
+    private static final Logger log = LoggerFactory.getLogger(SettingsDiagnostics.class.getName());
+
+    private static final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<EnhancedMap> collected = new ReferenceQueue<>();
+    /**
+     * unused keys of tracked settings that were garbage collected
+     */
+    private static final Map<String, Collection<String>> unusedOfCollected = new ConcurrentHashMap<>();
+    private static volatile boolean trackAll;
+    private static Thread shutdownHook;
+
+    private SettingsDiagnostics() {
+    }
+
+    /**
+     * Holds what is needed to report unused keys of {@link Settings} after they are garbage collected, but not the
+     * Settings themselves.
+     */
+    private static final class Tracked extends WeakReference<EnhancedMap> {
+
+        private final Supplier<Map.Entry<String, Collection<String>>> unused;
+
+        private Tracked(EnhancedMap settings) {
+            super(settings, collected);
+            unused = settings instanceof Settings s ? s.detachedUnusedKeys() : null;
+        }
+    }
+
+    /**
+     * Track settings for reporting unused keys.
+     *
+     * @param settings preferably the outermost decorator
+     */
+    public static void track(EnhancedMap settings) {
+        purge();
+        tracked.add(new Tracked(settings));
+    }
+
+    public static void untrack(EnhancedMap settings) {
+        tracked.removeIf(r -> r.get() == settings);
+    }
+
+    /**
+     * When true {@link com.vectorprint.configuration.Settings} created from now on will be {@link #track(EnhancedMap) tracked}.
+     *
+     * @param trackAll
+     */
+    public static void setTrackAll(boolean trackAll) {
+        SettingsDiagnostics.trackAll = trackAll;
+    }
+
+    public static boolean isTrackAll() {
+        return trackAll;
+    }
+
+    private static void purge() {
+        Reference<? extends EnhancedMap> r;
+        while ((r = collected.poll()) != null) {
+            if (tracked.remove(r) && ((Tracked) r).unused != null) {
+                Map.Entry<String, Collection<String>> unused = ((Tracked) r).unused.get();
+                if (!unused.getValue().isEmpty()) {
+                    unusedOfCollected.merge(unused.getKey(), unused.getValue(), SettingsDiagnostics::union);
+                }
+            }
+        }
+    }
+
+    private static Collection<String> union(Collection<String> a, Collection<String> b) {
+        Set<String> s = new TreeSet<>(a);
+        s.addAll(b);
+        return s;
+    }
+
+    /**
+     * @return the unused keys per tracked settings (id or class@hash when no id), including those of garbage collected
+     * {@link Settings}, only settings with unused keys are included
+     */
+    public static Map<String, Collection<String>> unusedKeys() {
+        purge();
+        Map<String, Collection<String>> unused = new LinkedHashMap<>(unusedOfCollected);
+        for (WeakReference<EnhancedMap> r : tracked) {
+            EnhancedMap settings = r.get();
+            if (settings != null && !settings.getUnusedKeys().isEmpty()) {
+                String name = settings.getId() != null ? settings.getId()
+                        : settings.getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(settings));
+                unused.merge(name, settings.getUnusedKeys(), SettingsDiagnostics::union);
+            }
+        }
+        return unused;
+    }
+
+    /**
+     * @return a report of unused keys, empty when all tracked settings are used
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        unusedKeys().forEach((id, keys) -> sb.append("not used, possibly obsolete settings in: %s: %s".formatted(id, keys))
+                .append(System.lineSeparator()));
+        return sb.toString();
+    }
+
+    /**
+     * Log a warning with the {@link #report() report} when the JVM shuts down.
+     *
+     * @param report
+     */
+    public static synchronized void reportAtShutdown(boolean report) {
+        if (report && shutdownHook == null) {
+            shutdownHook = new Thread(() -> {
+                String r = report();
+                if (!r.isEmpty()) {
+                    log.warn(r);
+                }
+            }, "settings-diagnostics");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else if (!report && shutdownHook != null) {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            shutdownHook = null;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.vectorprint.configuration.management;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.vectorprint.VectorPrintRuntimeException;
+import com.vectorprint.configuration.EnhancedMap;
+import com.vectorprint.configuration.Settings;
+import com.vectorprint.configuration.UsageTracking;
+import com.vectorprint.configuration.decoration.AbstractPropertiesDecorator;
+import com.vectorprint.configuration.decoration.CachingProperties;
+import com.vectorprint.configuration.decoration.visiting.DecoratorVisitor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Opt in statistics for settings, exposed as {@link SettingsStatsMXBean}. Counters are {@link LongAdder}s, updating
+ * them is cheap also under contention. Settings not registered pay only a null check.
+ */
+public final class SettingsStats implements SettingsStatsMXBean {
+
+    public static final String DOMAIN = "com.vectorprint.configuration";
+
+    private final EnhancedMap settings;
+    private final ObjectName name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder conversionFailures = new LongAdder();
+    private volatile long lastReloadNanos;
+    /**
+     * the usage tracking of settings before registration, restored on {@link #unregister() }
+     */
+    private final Map<Settings, UsageTracking> tracking = new IdentityHashMap<>(2);
+
+    private SettingsStats(EnhancedMap settings, ObjectName name) {
+        this.settings = settings;
+        this.name = name;
+    }
+
+    /**
+     * Create statistics for settings and register them in the platform MBeanServer under the {@link EnhancedMap#getId() id}
+     * of the settings. All {@link StatsAware} settings in the stack will update the statistics, {@link Settings} will
+     * {@link UsageTracking#ACCESS_COUNTS count access per key} until {@link #unregister() unregistered}, then their
+     * previous tracking is restored.
+     *
+     * @param settings preferably the outermost decorator
+     * @return
+     * @throws VectorPrintRuntimeException when registration fails, for example because settings with the same id are
+     * registered
+     */
+    public static SettingsStats register(EnhancedMap settings) {
+        try {
+            String id = settings.getId() != null ? settings.getId()
+                    : settings.getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(settings));
+            SettingsStats stats = new SettingsStats(settings,
+                    new ObjectName(DOMAIN + ":type=SettingsStats,id=" + ObjectName.quote(id)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, stats.name);
+            stats.visit(EnhancedMap.class, e -> {
+                if (e instanceof StatsAware sa) {
+                    sa.setStats(stats);
+                }
+                if (e instanceof Settings s && s.getUsageTracking() != UsageTracking.ACCESS_COUNTS) {
+                    synchronized (stats.tracking) {
+                        stats.tracking.put(s, s.getUsageTracking());
+                    }
+                    s.setUsageTracking(UsageTracking.ACCESS_COUNTS);
+                }
+            });
+            return stats;
+        } catch (JMException ex) {
+            throw new VectorPrintRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Unregister the MXBean, stop updating statistics and restore the usage tracking of settings.
+     */
+    public void unregister() {
+        visit(StatsAware.class, sa -> sa.setStats(null));
+        synchronized (tracking) {
+            tracking.forEach(Settings::setUsageTracking);
+            tracking.clear();
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException ex) {
+            throw new VectorPrintRuntimeException(ex);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    private <E> void visit(Class<E> clazz, Consumer<E> action) {
+        if (settings instanceof AbstractPropertiesDecorator apd) {
+            apd.accept(new DecoratorVisitor<>() {
+                @Override
+                public boolean shouldVisit(EnhancedMap e) {
+                    return clazz.isInstance(e);
+                }
+
+                @Override
+                public void visit(EnhancedMap e) {
+                    action.accept(clazz.cast(e));
+                }
+            });
+        } else if (clazz.isInstance(settings)) {
+            action.accept(clazz.cast(settings));
+        }
+    }
+
+    public void lookup(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void reloaded(long nanos) {
+        reloads.increment();
+        lastReloadNanos = nanos;
+    }
+
+    public void conversionFailure() {
+        conversionFailures.increment();
+    }
+
+    @Override
+    public String getId() {
+        return settings.getId();
+    }
+
+    @Override
+    public int getKeyCount() {
+        return settings.size();
+    }
+
+    @Override
+    public long getLookupCount() {
+        return hits.sum() + misses.sum();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return ratio(hits.sum(), misses.sum());
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return ratio(cacheHits.sum(), cacheMisses.sum());
+    }
+
+    private static double ratio(long hit, long miss) {
+        return hit + miss == 0 ? 0 : (double) hit / (hit + miss);
+    }
+
+    @Override
+    public int getCacheSize() {
+        int[] size = new int[1];
+        visit(CachingProperties.class, c -> size[0] += c.getCacheSize());
+        return size[0];
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        long[] evictions = new long[1];
+        visit(CachingProperties.class, c -> evictions[0] += c.getEvictions());
+        return evictions[0];
+    }
+
+    @Override
+    public long getReloadCount() {
+        return reloads.sum();
+    }
+
+    @Override
+    public long getLastReloadDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastReloadNanos);
+    }
+
+    @Override
+    public long getConversionFailures() {
+        return conversionFailures.sum();
+    }
+
+    @Override
+    public List<String> getUnusedKeys() {
+        return new ArrayList<>(settings.getUnusedKeys());
+    }
+
+    @Override
+    public List<String> getKeysNotPresent() {
+        return new ArrayList<>(settings.getKeysNotPresent());
+    }
+
+    @Override
+    public List<String> topKeys(int n) {
+        List<String> top = new ArrayList<>(n);
+        visit(Settings.class, s -> s.getAccessCounts().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(n)
+                .forEach(e -> top.add(e.getKey() + '=' + e.getValue())));
+        return top;
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        reloads.reset();
+        conversionFailures.reset();
+        lastReloadNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SettingsStats{" + "name=" + name + '}';
+    }
+}
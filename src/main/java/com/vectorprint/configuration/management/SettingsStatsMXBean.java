@@ -0,0 +1,89 @@
+package com.vectorprint.configuration.management;
+
+
+/*-
+ * #%L
+ * Config
+ * %%
+ * Copyright (C) 2015 - 2018 VectorPrint
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+/**
+ * Statistics for one set of settings, registered under
+ * <pre>com.vectorprint.configuration:type=SettingsStats,id=&lt;quoted id&gt;</pre>
+ *
+ * @see SettingsStats#register(com.vectorprint.configuration.EnhancedMap)
+ */
+public interface SettingsStatsMXBean {
+
+    String getId();
+
+    int getKeyCount();
+
+    long getLookupCount();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    /**
+     * @return hits / lookups or 0 when there were no lookups
+     */
+    double getHitRatio();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    /**
+     * @return cache hits / cache requests or 0 when there is no cache or it wasn't used
+     */
+    double getCacheHitRate();
+
+    /**
+     * @return the number of values in {@link com.vectorprint.configuration.decoration.CachingProperties caches} in the
+     * stack
+     */
+    int getCacheSize();
+
+    /**
+     * @return the number of entries evicted from bounded {@link com.vectorprint.configuration.decoration.CachingProperties caches}
+     */
+    long getCacheEvictions();
+
+    long getReloadCount();
+
+    long getLastReloadDurationMillis();
+
+    long getConversionFailures();
+
+    List<String> getUnusedKeys();
+
+    List<String> getKeysNotPresent();
+
+    /**
+     * @param n
+     * @return the n most accessed keys with their count (key=count), most accessed first
+     */
+    List<String> topKeys(int n);
+
+    /**
+     * reset counters
+     */
+    void reset();
+}
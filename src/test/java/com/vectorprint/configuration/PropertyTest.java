@@ -27,6 +27,7 @@ import com.vectorprint.VectorPrintException;
 import com.vectorprint.VectorPrintRuntimeException;
 import com.vectorprint.configuration.annotation.SettingsAnnotationProcessor;
 import com.vectorprint.configuration.annotation.SettingsAnnotationProcessorImpl;
+import com.vectorprint.configuration.annotation.SettingsField;
 import com.vectorprint.configuration.binding.AbstractBindingHelperDecorator;
 import com.vectorprint.configuration.binding.BindingHelper;
 import com.vectorprint.configuration.binding.parameters.EscapingBindingHelper;
@@ -39,17 +40,27 @@ import com.vectorprint.configuration.binding.settings.SettingsBindingService;
 import com.vectorprint.configuration.decoration.AbstractPropertiesDecorator;
 import com.vectorprint.configuration.decoration.AllowNoValue;
 import com.vectorprint.configuration.decoration.CachingProperties;
+import com.vectorprint.configuration.decoration.ChangeSetEvent;
+import com.vectorprint.configuration.decoration.EvictionPolicy;
 import com.vectorprint.configuration.decoration.FindableProperties;
 import com.vectorprint.configuration.decoration.HelpSupportedProperties;
+import com.vectorprint.configuration.decoration.KeyTrie;
 import com.vectorprint.configuration.decoration.ObservableProperties;
+import com.vectorprint.configuration.decoration.OverlayProperties;
 import com.vectorprint.configuration.decoration.ParsingProperties;
 import com.vectorprint.configuration.decoration.PreparingProperties;
 import com.vectorprint.configuration.decoration.ReadonlyProperties;
 import com.vectorprint.configuration.decoration.ReloadableProperties;
+import com.vectorprint.configuration.decoration.ScopedProperties;
+import com.vectorprint.configuration.decoration.SortedProperties;
 import com.vectorprint.configuration.decoration.ThreadBoundProperties;
+import com.vectorprint.configuration.decoration.visiting.CacheClearingVisitor;
+import com.vectorprint.configuration.decoration.visiting.DecoratorVisitor;
 import com.vectorprint.configuration.decoration.visiting.ObservableVisitor;
 import com.vectorprint.configuration.decoration.visiting.ParsingVisitor;
 import com.vectorprint.configuration.generated.parser.ParseException;
+import com.vectorprint.configuration.management.SettingsDiagnostics;
+import com.vectorprint.configuration.management.SettingsStats;
 import com.vectorprint.configuration.parameters.BooleanParameter;
 import com.vectorprint.configuration.parameters.CharPasswordParameter;
 import com.vectorprint.configuration.parameters.FloatArrayParameter;
@@ -78,15 +89,21 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -95,9 +112,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -519,6 +550,38 @@ public class PropertyTest {
       assertFalse(vp.getKeysNotPresent().contains("bigbold"));
    }
 
+   @Test
+   public void testUsageTracking() {
+      Settings settings = new Settings();
+      assertEquals(UsageTracking.KEYS, settings.getUsageTracking());
+      settings.put("a", "1");
+      settings.put("b", "2");
+      settings.setUsageTracking(UsageTracking.ACCESS_COUNTS);
+      settings.getIntegerProperty(null, "a");
+      settings.getIntegerProperty(null, "a");
+      settings.getIntegerProperty(3, "c");
+      assertEquals(Long.valueOf(2), settings.getAccessCounts().get("a"));
+      assertFalse(settings.getAccessCounts().containsKey("b"));
+      assertTrue(settings.getUnusedKeys().contains("b"));
+      assertFalse(settings.getUnusedKeys().contains("a"));
+      assertTrue(settings.getKeysNotPresent().contains("c"));
+      assertNull(settings.get("generated"));
+      assertFalse(settings.getAccessCounts().containsKey("generated"));
+      assertFalse(settings.getAccessCounts().containsKey("c"));
+      settings.setUsageTracking(UsageTracking.NONE);
+      assertTrue(settings.getAccessCounts().isEmpty());
+      assertTrue(settings.getUnusedKeys().isEmpty());
+      assertTrue(settings.getKeysNotPresent().isEmpty());
+      settings.getIntegerProperty(3, "c");
+      assertTrue(settings.getKeysNotPresent().isEmpty());
+      Settings.setDefaultUsageTracking(UsageTracking.NONE);
+      try {
+         assertEquals(UsageTracking.NONE, new Settings().getUsageTracking());
+      } finally {
+         Settings.setDefaultUsageTracking(UsageTracking.KEYS);
+      }
+   }
+
    @Test
    public void testNoValueAllowed() throws IOException {
       EnhancedMap vp = new AllowNoValue(new ParsingProperties(new Settings(), "src/test/resources/config" + File.separator + "styling.properties"));
@@ -917,4 +980,1100 @@ public class PropertyTest {
       EnhancedMap clone = map.clone();
       assertEquals("value", clone.getProperty("key"));
    }
+
+   @Test
+   public void testFrozen() {
+      Settings settings = new Settings();
+      settings.put("int", "3");
+      settings.put("ints", new String[]{"1", "2"});
+      settings.put("text", "hello");
+      settings.setId("frozen");
+      FrozenSettings frozen = FrozenSettings.freeze(new CachingProperties(settings));
+      assertEquals(3, frozen.size());
+      assertEquals("frozen", frozen.getId());
+      assertEquals(3, frozen.getIntegerProperty(null, "int"));
+      assertEquals(4, frozen.getIntegerProperty(4, "notthere"));
+      assertArrayEquals(new int[]{1, 2}, frozen.getIntegerProperties(null, "ints"));
+      assertEquals("hello", frozen.getProperty("text"));
+      assertEquals("hello", frozen.getProperty(null, "notthere", "text"));
+      assertEquals(Integer.valueOf(3), frozen.getOptional(Integer.class, "notthere", "int").get());
+      assertFalse(frozen.getOptional(Integer.class, "notthere").isPresent());
+      assertEquals(settings.keySet(), frozen.keySet());
+      assertTrue(frozen.getUnusedKeys().isEmpty());
+      assertTrue(frozen.getKeysNotPresent().isEmpty());
+      assertThrows(NoValueException.class, () -> frozen.getIntegerProperty(null, "notthere"));
+      assertThrows(VectorPrintRuntimeException.class, () -> frozen.getIntegerProperty(null, "ints"));
+      assertThrows(VectorPrintRuntimeException.class, () -> frozen.put("int", "4"));
+      assertThrows(VectorPrintRuntimeException.class, () -> frozen.remove("int"));
+      // a change in the source does not affect the snapshot
+      settings.put("int", "4");
+      assertEquals(3, frozen.getIntegerProperty(null, "int"));
+      assertEquals(4, FrozenSettings.freeze(settings).getIntegerProperty(null, "int"));
+      // values returned do not expose the snapshot
+      frozen.get("ints")[0] = "9";
+      frozen.getStringProperties(null, "ints")[0] = "9";
+      frozen.entrySet().iterator().next().getValue()[0] = "9";
+      assertArrayEquals(new int[]{1, 2}, frozen.getIntegerProperties(null, "ints"));
+      assertEquals(3, frozen.getIntegerProperty(null, "int"));
+   }
+
+   @Test
+   public void testConcurrent() throws InterruptedException {
+      Settings concurrent = Settings.concurrent();
+      assertTrue(concurrent.isConcurrent());
+      assertTrue(concurrent.clone().isConcurrent());
+      assertFalse(new Settings().isConcurrent());
+      for (int i = 0; i < 100; i++) {
+         concurrent.put("key" + i, String.valueOf(i));
+      }
+      List<Thread> threads = new ArrayList<>(4);
+      List<Throwable> errors = java.util.Collections.synchronizedList(new ArrayList<>(1));
+      for (int t = 0; t < 4; t++) {
+         threads.add(Thread.ofPlatform().start(() -> {
+            try {
+               for (int i = 0; i < 2000; i++) {
+                  String key = "key" + (i % 100);
+                  if (i % 10 == 0) {
+                     concurrent.put(key, String.valueOf(i % 100));
+                  } else {
+                     assertEquals(i % 100, concurrent.getIntegerProperty(-1, key));
+                     concurrent.getIntegerProperty(-1, "notthere");
+                  }
+               }
+            } catch (Throwable e) {
+               errors.add(e);
+            }
+         }));
+      }
+      for (Thread t : threads) {
+         t.join();
+      }
+      assertTrue(errors.isEmpty(), errors.toString());
+      for (int i = 0; i < 100; i++) {
+         assertEquals(i, concurrent.getIntegerProperty(null, "key" + i));
+      }
+      assertTrue(concurrent.getUnusedKeys().isEmpty());
+      assertTrue(concurrent.getKeysNotPresent().contains("notthere"));
+   }
+
+   @Test
+   public void testSettingKey() {
+      EnhancedMap settings = new CachingProperties(new Settings());
+      settings.put("b", "2");
+      settings.put("other", "x");
+      SettingKey<Integer> key = settings.settingKey(Integer.class, 1, "a", "b");
+      assertEquals(Integer.valueOf(2), key.get());
+      long version = settings.getVersion();
+      assertEquals(Integer.valueOf(2), key.get());
+      settings.put("other", "y");
+      assertTrue(settings.getVersion() > version);
+      assertEquals(Integer.valueOf(2), key.get());
+      settings.put("a", "3");
+      assertEquals(Integer.valueOf(3), key.get());
+      settings.remove("a");
+      settings.remove("b");
+      assertEquals(Integer.valueOf(1), key.get());
+      SettingKey<Integer> required = settings.settingKey(Integer.class, null, "a");
+      assertThrows(NoValueException.class, required::get);
+      settings.put("a", "4");
+      assertEquals(Integer.valueOf(4), required.get());
+   }
+
+   @Test
+   public void testPrimitives() {
+      Settings settings = new Settings();
+      settings.put("i", "3");
+      settings.put("l", "30000000000");
+      settings.put("d", "1.5");
+      settings.put("b", "true");
+      settings.put("empty", "");
+      settings.put("bad", "x");
+      for (EnhancedMap map : new EnhancedMap[]{settings, FrozenSettings.freeze(settings), new CachingProperties(settings.clone())}) {
+         assertEquals(3, map.getInt("i", 1));
+         assertEquals(3, map.getInt("i", 1));
+         assertEquals(1, map.getInt("notthere", 1));
+         assertEquals(2, map.getInt("notthere", 2));
+         assertEquals(1, map.getInt("empty", 1));
+         assertEquals(2, map.getInt("empty", 2));
+         assertEquals(5L, map.getLong("empty", 5));
+         assertEquals(6L, map.getLong("empty", 6));
+         assertEquals(0.5, map.getDouble("empty", 0.5));
+         assertEquals(2.5, map.getDouble("empty", 2.5));
+         assertTrue(map.getBoolean("empty", true));
+         assertFalse(map.getBoolean("empty", false));
+         assertEquals(30000000000L, map.getLong("l", 1));
+         assertEquals(1.5, map.getDouble("d", 1));
+         assertTrue(map.getBoolean("b", false));
+         assertTrue(map.getBoolean("notthere", true));
+         // a bad value fails the same way as through the typed getters
+         assertEquals(assertThrows(RuntimeException.class, () -> map.getIntegerProperty(null, "bad")).getClass(),
+             assertThrows(RuntimeException.class, () -> map.getInt("bad", 1)).getClass());
+         assertEquals(assertThrows(RuntimeException.class, () -> map.getLongProperty(null, "bad")).getClass(),
+             assertThrows(RuntimeException.class, () -> map.getLong("bad", 1)).getClass());
+         assertEquals(assertThrows(RuntimeException.class, () -> map.getDoubleProperty(null, "bad")).getClass(),
+             assertThrows(RuntimeException.class, () -> map.getDouble("bad", 1)).getClass());
+      }
+      EnhancedMap cache = new CachingProperties(settings);
+      assertEquals(3, cache.getInt("i", 1));
+      cache.put("i", "4");
+      assertEquals(4, cache.getInt("i", 1));
+      cache.remove("i");
+      assertEquals(1, cache.getInt("i", 1));
+   }
+
+   @Test
+   public void testQuery() {
+      Settings settings = new Settings();
+      settings.put("i", "3");
+      settings.put("c", "#ff0000");
+      SettingsQuery q = new SettingsQuery();
+      SettingsQuery.Entry<Integer> i = q.add(Integer.class, 1, "i");
+      SettingsQuery.Entry<Color> c = q.add(Color.class, null, "notthere", "c");
+      SettingsQuery.Entry<Integer> d = q.add(Integer.class, 5, "notthere");
+      CachingProperties caching = new CachingProperties(settings.clone());
+      for (EnhancedMap map : new EnhancedMap[]{settings, FrozenSettings.freeze(settings), caching, caching}) {
+         SettingsQuery.Result r = map.query(q);
+         assertEquals(Integer.valueOf(3), r.get(i));
+         assertEquals(Color.RED, r.get(c));
+         assertEquals(Integer.valueOf(5), r.get(d));
+      }
+      assertEquals(3, caching.getIntegerProperty(null, "i"));
+      assertThrows(IllegalArgumentException.class, () -> settings.query(q).get(new SettingsQuery().add(Integer.class, 1, "i")));
+
+      SettingsQuery required = new SettingsQuery();
+      SettingsQuery.Entry<Integer> n = required.add(Integer.class, null, "notthere");
+      assertThrows(NoValueException.class, () -> settings.query(required));
+      assertThrows(NoValueException.class, () -> FrozenSettings.freeze(settings).query(required));
+      assertNull(settings.query(required.allowingNoValue()).get(n));
+      assertNull(new AllowNoValue(new CachingProperties(settings.clone())).query(required).get(n));
+
+      ObservableProperties observable = new ObservableProperties(settings.clone());
+      List<SettingsQuery.Result> results = new ArrayList<>(1);
+      PropertyChangeListener l = observable.addObserver(q, results::add);
+      observable.put("other", "1");
+      assertTrue(results.isEmpty());
+      observable.put("i", "4");
+      assertEquals(1, results.size());
+      assertEquals(Integer.valueOf(4), results.get(0).get(i));
+      observable.removeObserver(l);
+      observable.put("i", "5");
+      assertEquals(1, results.size());
+   }
+
+   @Test
+   public void testFusedReads() throws CloneNotSupportedException {
+      Settings settings = new Settings();
+      ObservableProperties observable = new ObservableProperties(settings);
+      PreparingProperties preparing = new PreparingProperties(observable);
+      preparing.addObserver(new TrimKeyValue().setOptIn(false));
+      CachingProperties caching = new CachingProperties(preparing);
+      AllowNoValue allowNoValue = new AllowNoValue(caching);
+      assertSame(settings, observable.getReadTarget());
+      assertSame(settings, preparing.getReadTarget());
+      assertSame(settings, caching.getReadTarget());
+      assertSame(caching, allowNoValue.getReadTarget());
+
+      List<String> changed = new ArrayList<>(1);
+      observable.addObserver(evt -> changed.add(evt.getPropertyName()));
+      allowNoValue.put(" k ", " v ");
+      assertEquals("v", allowNoValue.getProperty(null, "k"));
+      assertEquals(List.of("k"), changed);
+      assertNull(allowNoValue.getProperty(null, "notthere"));
+
+      AbstractPropertiesDecorator clone = (AbstractPropertiesDecorator) caching.clone();
+      assertNotSame(settings, clone.getReadTarget());
+      assertTrue(clone.getReadTarget() instanceof Settings);
+      assertEquals("v", clone.getProperty(null, "k"));
+   }
+
+   @Test
+   public void testStackIndex() throws IOException, ClassNotFoundException {
+      Settings settings = new Settings();
+      settings.put("i", "1");
+      ObservableProperties observable = new ObservableProperties(settings);
+      CachingProperties caching = new CachingProperties(observable);
+      assertTrue(caching.hasProperties(CachingProperties.class));
+      assertTrue(caching.hasProperties(ObservableProperties.class));
+      assertTrue(caching.hasProperties(Settings.class));
+      assertTrue(caching.hasProperties(EnhancedMap.class));
+      assertFalse(caching.hasProperties(ReadonlyProperties.class));
+      assertFalse(observable.hasProperties(CachingProperties.class));
+      assertEquals(List.of(ObservableProperties.class, CachingProperties.class), settings.getDecorators());
+      assertEquals(List.of(CachingProperties.class), observable.getDecorators());
+      assertSame(caching, settings.getOutermostDecorator());
+      assertThrows(VectorPrintRuntimeException.class, () -> new CachingProperties(new ThreadBoundProperties(new Settings())));
+
+      caching.getIntegerProperty(null, "i");
+      assertEquals(1, caching.getCacheSize());
+      caching.accept(new CacheClearingVisitor());
+      assertEquals(0, caching.getCacheSize());
+      List<EnhancedMap> visited = new ArrayList<>(3);
+      caching.accept(new DecoratorVisitor<EnhancedMap>() {
+         @Override
+         public boolean shouldVisit(EnhancedMap e) {
+            return true;
+         }
+
+         @Override
+         public void visit(EnhancedMap e) {
+            visited.add(e);
+         }
+      });
+      assertEquals(List.of(caching, observable, settings), visited);
+
+      ByteArrayOutputStream bo = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bo)) {
+         oos.writeObject(caching);
+      }
+      CachingProperties deserialized = (CachingProperties) new ObjectInputStream(new ByteArrayInputStream(bo.toByteArray())).readObject();
+      assertTrue(deserialized.hasProperties(ObservableProperties.class));
+      assertEquals("1", deserialized.getProperty(null, "i"));
+   }
+
+   @Test
+   public void testCompositeCacheKeys() {
+      Settings settings = new Settings();
+      settings.put("ab", "1");
+      settings.put("a", "3");
+      settings.put("i", "5");
+      CachingProperties caching = new CachingProperties(settings);
+      assertEquals(1, caching.getIntegerProperty(null, "ab", "c"));
+      assertEquals(3, caching.getIntegerProperty(null, "a", "bc"));
+      assertEquals(1, caching.getIntegerProperty(null, "ab", "c"));
+
+      caching.clearCache();
+      assertEquals(5, caching.getIntegerProperty(null, "i"));
+      assertEquals(5L, caching.getLongProperty(null, "i"));
+      assertEquals(Optional.of(5), caching.getOptional(Integer.class, "i"));
+      assertEquals(3, caching.getCacheSize());
+      assertEquals(5, caching.getIntegerProperty(null, "i"));
+      assertEquals(5L, caching.getLongProperty(null, "i"));
+      assertEquals(3, caching.getCacheSize());
+
+      caching.put("a", "4");
+      assertEquals(4, caching.getIntegerProperty(null, "a", "bc"));
+      assertEquals(1, caching.getIntegerProperty(null, "ab", "c"));
+      caching.put("i", "6");
+      assertEquals(6L, caching.getLongProperty(null, "i"));
+   }
+
+   @Test
+   public void testCacheInvalidation() throws IOException, InterruptedException {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      settings.put("b", "2");
+      CachingProperties caching = new CachingProperties(settings);
+      assertEquals(1, caching.getIntegerProperty(null, "a"));
+      assertEquals(2, caching.getIntegerProperty(null, "b"));
+      assertEquals(1, caching.getIntegerProperty(null, "a", "b"));
+      assertEquals(2, caching.getIntegerProperty(null, "c", "b"));
+      assertEquals(4, caching.getCacheSize());
+      caching.put("a", "3");
+      assertEquals(2, caching.getCacheSize());
+      assertEquals(3, caching.getIntegerProperty(null, "a", "b"));
+      caching.putAll(Map.of("b", new String[]{"4"}));
+      assertEquals(4, caching.getIntegerProperty(null, "c", "b"));
+      assertEquals(4, caching.getIntegerProperty(null, "b"));
+      caching.clear();
+      assertEquals(0, caching.getCacheSize());
+      assertEquals(5, caching.getIntegerProperty(5, "a"));
+
+      File f = File.createTempFile("props", "props");
+      f.deleteOnExit();
+      Files.writeString(f.toPath(), "alpha=1\n");
+      CachingProperties reloading = new CachingProperties(new ReloadableProperties(new ObservableProperties(new Settings()), 100, f));
+      assertEquals(1, reloading.getIntegerProperty(null, "alpha"));
+      Files.writeString(f.toPath(), "alpha=2\n");
+      for (int i = 0; i < 50 && reloading.getIntegerProperty(null, "alpha") == 1; i++) {
+         Thread.sleep(100);
+      }
+      assertEquals(2, reloading.getIntegerProperty(null, "alpha"));
+   }
+
+   @Test
+   public void testConcurrentCache() throws InterruptedException {
+      Settings settings = new Settings();
+      settings.put("p", "a.*b");
+      LongAdder conversions = new LongAdder();
+      CachingProperties cache = new CachingProperties(new AbstractPropertiesDecorator(settings) {
+         @Override
+         public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+            conversions.increment();
+            try {
+               Thread.sleep(50);
+            } catch (InterruptedException ex) {
+               Thread.currentThread().interrupt();
+            }
+            return super.getGenericProperty(defaultValue, clazz, keys);
+         }
+      });
+      int threads = 200;
+      CountDownLatch start = new CountDownLatch(1);
+      Set<Pattern> patterns = ConcurrentHashMap.newKeySet();
+      List<Thread> started = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+         started.add(Thread.ofVirtual().start(() -> {
+            try {
+               start.await();
+               patterns.add(cache.getGenericProperty(null, Pattern.class, "p"));
+            } catch (InterruptedException ex) {
+               Thread.currentThread().interrupt();
+            }
+         }));
+      }
+      start.countDown();
+      for (Thread t : started) {
+         t.join();
+      }
+      assertEquals(1, conversions.sum());
+      assertEquals(1, patterns.size());
+      assertEquals(threads, cache.getHits() + cache.getMisses());
+
+      cache.put("p", "c");
+      assertEquals("c", cache.getGenericProperty(null, Pattern.class, "p").pattern());
+   }
+
+   @Test
+   public void testNegativeCache() {
+      Settings settings = new Settings();
+      LongAdder conversions = new LongAdder();
+      CachingProperties cache = new CachingProperties(new AbstractPropertiesDecorator(settings) {
+         @Override
+         public <T> T getGenericProperty(T defaultValue, Class<T> clazz, String... keys) {
+            conversions.increment();
+            return super.getGenericProperty(defaultValue, clazz, keys);
+         }
+      });
+      assertEquals(5, cache.getIntegerProperty(5, "x"));
+      assertEquals(7, cache.getIntegerProperty(7, "x"));
+      assertThrows(NoValueException.class, () -> cache.getIntegerProperty(null, "x"));
+      assertThrows(NoValueException.class, () -> cache.getIntegerProperty(null, "x"));
+      assertNull(new AllowNoValue(cache).getGenericProperty(null, Integer.class, "x"));
+      assertTrue(cache.getOptional(Integer.class, "x").isEmpty());
+      assertEquals(2, conversions.sum());
+      assertEquals(4, cache.getHits());
+      assertEquals(3, cache.getInt("x", 3));
+      assertEquals(4, cache.getInt("x", 4));
+      assertEquals(6, cache.getHits());
+
+      cache.put("x", "9");
+      assertEquals(9, cache.getIntegerProperty(5, "x"));
+      assertEquals(9, cache.getInt("x", 3));
+      assertEquals(Optional.of(9), cache.getOptional(Integer.class, "x"));
+      assertEquals(3, conversions.sum());
+
+      AllowNoValue allow = new AllowNoValue(settings);
+      CachingProperties above = new CachingProperties(allow);
+      assertNull(above.getGenericProperty(null, Integer.class, "y"));
+      assertNull(above.getGenericProperty(null, Integer.class, "y"));
+      assertEquals(1, above.getHits());
+   }
+
+   @Test
+   public void testLookup() {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      settings.put("empty", "");
+      for (EnhancedMap map : new EnhancedMap[]{settings, FrozenSettings.freeze(settings), new CachingProperties(settings.clone()),
+         new AllowNoValue(settings.clone())}) {
+         assertNull(map.lookup(Integer.class, "x"));
+         assertNull(map.lookup(Integer.class, "x"));
+         assertEquals(Integer.valueOf(1), map.lookup(Integer.class, "x", "a").getValue());
+         assertNull(map.lookup(Integer.class, "empty").getValue());
+         assertTrue(map.getOptional(Integer.class, "x").isEmpty());
+      }
+      assertNull(new AllowNoValue(settings).getGenericProperty(null, Integer.class, "x"));
+      // a key removed between looking for it and reading it
+      Settings removing = new Settings();
+      removing.put("gone", "1");
+      EnhancedMap racing = (EnhancedMap) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EnhancedMap.class},
+          (proxy, m, args) -> {
+             Object rv;
+             try {
+                rv = m.invoke(removing, args);
+             } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+             }
+             if (m.getName().equals("containsKey") && "gone".equals(args[0])) {
+                removing.remove("gone");
+             }
+             return rv;
+          });
+      assertNull(new CachingProperties(racing).lookup(Integer.class, "gone"));
+
+      assertTrue(NoValueException.isStackTraces());
+      assertTrue(assertThrows(NoValueException.class, () -> settings.getIntegerProperty(null, "x")).getStackTrace().length > 0);
+      NoValueException.setStackTraces(false);
+      try {
+         assertEquals(0, assertThrows(NoValueException.class, () -> settings.getIntegerProperty(null, "x")).getStackTrace().length);
+      } finally {
+         NoValueException.setStackTraces(true);
+      }
+   }
+
+   @Test
+   public void testScopedProperties() throws Exception {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      ScopedProperties scoped = new ScopedProperties(settings);
+      ScopedProperties other = new ScopedProperties(new Settings());
+      assertFalse(scoped.isBound());
+      assertThrows(VectorPrintRuntimeException.class, () -> scoped.get("a"));
+      assertEquals(Integer.valueOf(1), scoped.call(() -> {
+         other.run(() -> assertArrayEquals(new String[]{"1"}, scoped.get("a")));
+         assertTrue(scoped.isBound());
+         assertFalse(other.isBound());
+         boolean[] boundInThread = {true};
+         Thread t = Thread.ofVirtual().start(() -> boundInThread[0] = scoped.isBound());
+         t.join();
+         assertFalse(boundInThread[0]);
+         return scoped.getIntegerProperty(null, "a");
+      }));
+      assertFalse(scoped.isBound());
+      assertThrows(VectorPrintRuntimeException.class, () -> scoped.put("b", "2"));
+      assertThrows(VectorPrintRuntimeException.class,
+          () -> new CachingProperties(new ScopedProperties(new Settings())));
+   }
+
+   @Test
+   public void testOverlayProperties() {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      settings.put("b", "2");
+      CachingProperties base = new CachingProperties(settings);
+      OverlayProperties overlay = new OverlayProperties(base);
+      assertFalse(settings.getDecorators().contains(OverlayProperties.class));
+      assertSame(base, settings.getOutermostDecorator());
+      assertEquals(1, overlay.getIntegerProperty(null, "a"));
+
+      long version = overlay.getVersion();
+      overlay.put("a", "5");
+      overlay.put("c", "3");
+      assertNotEquals(version, overlay.getVersion());
+      assertEquals(5, overlay.getIntegerProperty(null, "a"));
+      assertEquals(5, overlay.getInt("a", 0));
+      assertEquals(1, base.getIntegerProperty(null, "a"));
+      assertEquals(2, overlay.getIntegerProperty(null, "b", "c"));
+      assertEquals(3, overlay.getIntegerProperty(null, "x", "c"));
+      assertEquals(3, overlay.size());
+      assertEquals(2, base.size());
+      assertEquals(2, overlay.getIntegerProperty(null, "b"));
+      long hits = base.getHits();
+      assertEquals(2, overlay.getIntegerProperty(null, "b"));
+      assertEquals(hits + 1, base.getHits());
+
+      SettingsQuery query = new SettingsQuery();
+      SettingsQuery.Entry<Integer> a = query.add(Integer.class, null, "a");
+      SettingsQuery.Entry<Integer> b = query.add(Integer.class, null, "b");
+      SettingsQuery.Result result = overlay.query(query);
+      assertEquals(Integer.valueOf(5), result.get(a));
+      assertEquals(Integer.valueOf(2), result.get(b));
+
+      OverlayProperties other = (OverlayProperties) overlay.clone();
+      other.remove("a");
+      assertEquals(1, other.getIntegerProperty(null, "a"));
+      assertEquals(5, overlay.getIntegerProperty(null, "a"));
+      overlay.clear();
+      assertEquals(1, overlay.getIntegerProperty(null, "a"));
+      assertEquals(2, base.size());
+
+      // decorating an overlay does not register with the shared base
+      ObservableProperties perRequest = new ObservableProperties(overlay);
+      assertSame(perRequest, overlay.getOutermostDecorator());
+      assertSame(base, settings.getOutermostDecorator());
+      assertNull(base.getOutermostDecorator());
+      assertFalse(settings.getDecorators().contains(ObservableProperties.class));
+      assertFalse(base.getDecorators().contains(ObservableProperties.class));
+   }
+
+   @Test
+   public void testVersionedSettings() throws IOException, InterruptedException {
+      VersionedSettings versioned = new VersionedSettings();
+      assertEquals(1, versioned.getVersion());
+      versioned.put("a", "1");
+      FrozenSettings pinned = versioned.pin();
+      assertEquals(2, pinned.getVersion());
+      versioned.put("a", "2");
+      assertEquals(1, pinned.getIntegerProperty(null, "a"));
+      assertEquals(2, versioned.getIntegerProperty(null, "a"));
+      assertEquals(3, versioned.getVersion());
+
+      versioned.update(() -> {
+         versioned.put("b", "3");
+         versioned.put("c", "4");
+         assertNull(versioned.lookup(Integer.class, "b"));
+      });
+      assertEquals(3, versioned.getIntegerProperty(null, "b"));
+      assertEquals(4, versioned.getIntegerProperty(null, "c"));
+      assertEquals(4, versioned.getVersion());
+      versioned.update(() -> {
+      });
+      assertEquals(4, versioned.getVersion());
+      assertThrows(IOException.class, () -> versioned.update(() -> {
+         versioned.put("d", "5");
+         throw new IOException("failed");
+      }));
+      assertFalse(versioned.containsKey("d"));
+      assertEquals(4, versioned.getVersion());
+
+      File f = File.createTempFile("props", "props");
+      f.deleteOnExit();
+      Files.writeString(f.toPath(), "alpha=1\nbeta=1\n");
+      VersionedSettings reloaded = new VersionedSettings();
+      ReloadableProperties reloading = new ReloadableProperties(reloaded, 100, f);
+      try {
+         long version = reloading.getVersion();
+         // different length and a newer modification time, so the change is seen whatever the clock resolution
+         Files.writeString(f.toPath(), "alpha=22\nbeta=22\n");
+         assertTrue(f.setLastModified(f.lastModified() + 2000));
+         for (int i = 0; i < 50 && reloading.getIntegerProperty(null, "beta") == 1; i++) {
+            Thread.sleep(100);
+         }
+         assertTrue(reloading.getVersion() > version);
+         assertEquals(22, reloading.getIntegerProperty(null, "alpha"));
+         assertEquals(22, reloading.getIntegerProperty(null, "beta"));
+      } finally {
+         reloading.stopWatching();
+      }
+
+      // observers and caches above see a change of an update only after it is published
+      VersionedSettings published = new VersionedSettings();
+      published.put("x", "1");
+      CachingProperties cached = new CachingProperties(published);
+      ObservableProperties observed = new ObservableProperties(cached);
+      List<Integer> seen = new ArrayList<>();
+      observed.addObserver(evt -> seen.add(observed.getIntegerProperty(null, "x")));
+      assertEquals(1, observed.getIntegerProperty(null, "x"));
+      published.update(() -> {
+         observed.put("x", "2");
+         assertTrue(seen.isEmpty());
+         assertEquals(1, observed.getIntegerProperty(null, "x"));
+      });
+      assertEquals(List.of(2), seen);
+      assertEquals(2, observed.getIntegerProperty(null, "x"));
+      assertThrows(IOException.class, () -> published.update(() -> {
+         observed.put("x", "3");
+         throw new IOException("failed");
+      }));
+      assertEquals(List.of(2), seen);
+      assertEquals(2, observed.getIntegerProperty(null, "x"));
+   }
+
+   @Test
+   public void testCoalescedNotification() throws InterruptedException {
+      ObservableProperties observable = new ObservableProperties(new Settings(), null, ObservableProperties.DEFAULT_CAPACITY);
+      assertTrue(observable.isCoalescing());
+      BlockingQueue<PropertyChangeEvent> events = new LinkedBlockingQueue<>();
+      observable.addObserver(events::add);
+      observable.put("a", "1");
+      ChangeSetEvent single = (ChangeSetEvent) events.poll(5, TimeUnit.SECONDS);
+      assertEquals(Set.of("a"), single.getKeys());
+      assertNull(single.getPropertyName());
+
+      observable.batch(() -> {
+         observable.put("a", "2");
+         observable.put("b", "1");
+         observable.put("a", "3");
+         observable.put("c", "1");
+         observable.remove("c");
+      });
+      ChangeSetEvent batch = (ChangeSetEvent) events.poll(5, TimeUnit.SECONDS);
+      assertEquals(List.of("a", "b"), new ArrayList<>(batch.getKeys()));
+      assertArrayEquals(new String[]{"1"}, (String[]) batch.getChange("a").getOldValue());
+      assertArrayEquals(new String[]{"3"}, (String[]) batch.getChange("a").getNewValue());
+
+      for (int i = 0; i < 100; i++) {
+         observable.put("n", String.valueOf(i));
+      }
+      for (int i = 0; i < 100; i++) {
+         ChangeSetEvent e = (ChangeSetEvent) events.poll(5, TimeUnit.SECONDS);
+         assertArrayEquals(new String[]{String.valueOf(i)}, (String[]) e.getChange("n").getNewValue());
+      }
+
+      CountDownLatch release = new CountDownLatch(1);
+      ObservableProperties slow = new ObservableProperties(new Settings(), null, 1);
+      slow.addObserver(evt -> {
+         try {
+            release.await();
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+         }
+      });
+      Thread writer = new Thread(() -> {
+         for (int i = 0; i < 5; i++) {
+            slow.put("k", String.valueOf(i));
+         }
+      });
+      writer.start();
+      for (int i = 0; i < 50 && writer.getState() != Thread.State.WAITING; i++) {
+         Thread.sleep(100);
+      }
+      assertEquals(Thread.State.WAITING, writer.getState());
+      release.countDown();
+      writer.join(5000);
+      assertFalse(writer.isAlive());
+      // an observer writing while its own queue is full does not wait for itself
+      ObservableProperties writing = new ObservableProperties(new Settings(), null, 1);
+      BlockingQueue<String> handled = new LinkedBlockingQueue<>();
+      writing.addObserver(evt -> {
+         ChangeSetEvent changes = (ChangeSetEvent) evt;
+         if (changes.getKeys().contains("start")) {
+            for (int i = 0; i < 3; i++) {
+               writing.put("w" + i, "1");
+            }
+         }
+         handled.addAll(changes.getKeys());
+      });
+      writing.put("start", "1");
+      for (String k : List.of("start", "w0", "w1", "w2")) {
+         assertEquals(k, handled.poll(5, TimeUnit.SECONDS));
+      }
+   }
+
+   @Test
+   public void testApplySnapshot() throws InterruptedException {
+      Settings base = new Settings();
+      Map<String, String[]> snapshot = new HashMap<>();
+      for (int i = 0; i < 1000; i++) {
+         base.put("k" + i, String.valueOf(i));
+         snapshot.put("k" + i, new String[]{String.valueOf(i)});
+      }
+      snapshot.put("k1", new String[]{"changed"});
+      snapshot.put("k2", new String[]{"changed"});
+      snapshot.remove("k3");
+      snapshot.put("new", new String[]{"1"});
+
+      ObservableProperties observable = new ObservableProperties(base);
+      List<PropertyChangeEvent> events = new ArrayList<>();
+      observable.addObserver(events::add);
+      assertEquals(4, observable.applySnapshot(snapshot));
+      assertEquals(4, events.size());
+      // diffing does not mark keys as used
+      assertEquals(1000, observable.getUnusedKeys().size());
+      assertEquals(Set.of("k1", "k2", "k3", "new"), events.stream().map(PropertyChangeEvent::getPropertyName).collect(Collectors.toSet()));
+      assertEquals(1000, observable.size());
+      assertFalse(observable.containsKey("k3"));
+      assertEquals(0, observable.applySnapshot(snapshot));
+      assertEquals(4, events.size());
+      assertEquals(5, observable.getIntegerProperty(5, "missing"));
+      assertFalse(observable.getKeysNotPresent().isEmpty());
+
+      // over versioned settings a snapshot and a clear are each published as one version
+      VersionedSettings versioned = new VersionedSettings(base);
+      ObservableProperties overVersioned = new ObservableProperties(versioned);
+      long version = versioned.getVersion();
+      snapshot.put("k5", new String[]{"changed"});
+      snapshot.remove("k6");
+      assertEquals(2, overVersioned.applySnapshot(snapshot));
+      assertEquals(version + 1, versioned.getVersion());
+      assertFalse(versioned.containsKey("k6"));
+      overVersioned.clear();
+      assertEquals(version + 2, versioned.getVersion());
+      assertTrue(versioned.isEmpty());
+
+      // clear clears the settings beneath, not only their keys
+      observable.clear();
+      assertEquals(1004, events.size());
+      assertTrue(observable.isEmpty());
+      assertTrue(observable.getKeysNotPresent().isEmpty());
+
+      ObservableProperties coalescing = new ObservableProperties(new Settings(), null, ObservableProperties.DEFAULT_CAPACITY);
+      coalescing.put("k1", "1");
+      coalescing.put("k3", "3");
+      coalescing.put("k4", "4");
+      BlockingQueue<PropertyChangeEvent> queue = new LinkedBlockingQueue<>();
+      coalescing.addObserver(queue::add);
+      coalescing.applySnapshot(Map.of("k1", new String[]{"1"}, "k4", new String[]{"5"}, "k5", new String[]{"5"}));
+      ChangeSetEvent change = (ChangeSetEvent) queue.poll(5, TimeUnit.SECONDS);
+      assertEquals(Set.of("k3", "k4", "k5"), change.getKeys());
+      assertNull(change.getChange("k3").getNewValue());
+      coalescing.clear();
+      change = (ChangeSetEvent) queue.poll(5, TimeUnit.SECONDS);
+      assertEquals(Set.of("k1", "k4", "k5"), change.getKeys());
+      assertTrue(coalescing.isEmpty());
+   }
+
+   @Test
+   public void testKeySubscriptions() throws InterruptedException, CloneNotSupportedException {
+      KeyTrie<String> trie = new KeyTrie<>();
+      trie.add("db.url", "exact");
+      trie.addPrefix("db.pool.", "pool");
+      trie.addPrefix("", "all");
+      trie.addGlob("db.*.size", "glob");
+      trie.addGlob("db.u?l", "single");
+      assertEquals(Set.of("exact", "all", "single"), trie.match("db.url"));
+      assertEquals(Set.of("pool", "all", "glob"), trie.match("db.pool.size"));
+      assertEquals(Set.of("all"), trie.match("db.pool"));
+      assertEquals(Set.of("all", "glob"), trie.match("db..size"));
+      assertTrue(trie.remove("pool"));
+      assertFalse(trie.remove("pool"));
+      assertEquals(Set.of("all", "glob"), trie.match("db.pool.size"));
+
+      ObservableProperties observable = new ObservableProperties(new Settings());
+      List<String> pool = new ArrayList<>();
+      List<String> url = new ArrayList<>();
+      PropertyChangeListener poolListener = evt -> pool.add(evt.getPropertyName());
+      observable.addPrefixObserver("db.pool.", poolListener);
+      observable.addObserver("db.url", evt -> url.add(evt.getPropertyName()));
+      observable.put("db.pool.size", "10");
+      observable.put("db.url", "jdbc:h2:mem:");
+      observable.put("other", "1");
+      assertEquals(List.of("db.pool.size"), pool);
+      assertEquals(List.of("db.url"), url);
+      observable.removeObserver(poolListener);
+      observable.put("db.pool.size", "20");
+      assertEquals(1, pool.size());
+
+      // a clone has its own copy of the subscriptions
+      observable.addPrefixObserver("db.pool.", poolListener);
+      ObservableProperties cloned = (ObservableProperties) observable.clone();
+      cloned.removeObserver(poolListener);
+      cloned.put("db.pool.size", "30");
+      assertEquals(1, pool.size());
+      observable.put("db.pool.size", "40");
+      assertEquals(2, pool.size());
+      cloned.put("db.url", "jdbc:h2:file:");
+      assertEquals(List.of("db.url", "db.url"), url);
+
+      ObservableProperties coalescing = new ObservableProperties(new Settings(), null, ObservableProperties.DEFAULT_CAPACITY);
+      BlockingQueue<PropertyChangeEvent> events = new LinkedBlockingQueue<>();
+      coalescing.addGlobObserver("http.*.timeout", events::add);
+      coalescing.batch(() -> {
+         coalescing.put("http.client.timeout", "5");
+         coalescing.put("http.client.url", "x");
+         coalescing.put("http.server.timeout", "7");
+      });
+      ChangeSetEvent change = (ChangeSetEvent) events.poll(5, TimeUnit.SECONDS);
+      assertEquals(Set.of("http.client.timeout", "http.server.timeout"), change.getKeys());
+      coalescing.put("http.client.url", "y");
+      assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void testSortedIndex() {
+      Settings settings = new Settings();
+      SortedProperties sorted = new SortedProperties(settings);
+      sorted.put("datasource.url", "jdbc");
+      sorted.put("cache.size", "10");
+      sorted.put("datasource.user", "sa");
+      sorted.put("datasourcex", "x");
+      Set<String> keys = sorted.keySet();
+      assertEquals(List.of("cache.size", "datasource.url", "datasource.user", "datasourcex"), new ArrayList<>(keys));
+
+      SortedMap<String, String[]> datasource = sorted.prefix("datasource.");
+      assertEquals(List.of("datasource.url", "datasource.user"), new ArrayList<>(datasource.keySet()));
+      assertArrayEquals(new String[]{"sa"}, datasource.get("datasource.user"));
+      assertNull(datasource.get("cache.size"));
+
+      sorted.put("datasource.password", "secret");
+      sorted.remove("datasource.url");
+      assertEquals(List.of("datasource.password", "datasource.user"), new ArrayList<>(datasource.keySet()));
+      assertEquals(4, keys.size());
+
+      settings.put("a", "1");
+      assertEquals("a", sorted.keySet().iterator().next());
+      assertEquals(List.of("a", "cache.size"), new ArrayList<>(sorted.headMap("d").keySet()));
+      assertEquals(List.of("datasourcex"), new ArrayList<>(sorted.tailMap("datasourcex").keySet()));
+      assertEquals(List.of("cache.size", "datasource.password"), new ArrayList<>(sorted.subMap("b", "datasource.u").keySet()));
+      assertEquals("datasource.password", sorted.entrySet().stream().skip(2).findFirst().get().getKey());
+      assertThrows(UnsupportedOperationException.class, () -> datasource.put("datasource.x", new String[]{"x"}));
+
+      // views obtained before see writes beneath without reading through the decorator first
+      Set<Map.Entry<String, String[]>> entries = sorted.entrySet();
+      settings.put("datasource.zz", "z");
+      assertEquals(3, datasource.size());
+      assertTrue(datasource.containsKey("datasource.zz"));
+      assertEquals("datasource.zz", datasource.lastKey());
+      settings.remove("datasource.user");
+      assertEquals(List.of("datasource.password", "datasource.zz"), new ArrayList<>(datasource.keySet()));
+      assertTrue(keys.contains("datasource.zz"));
+      assertEquals(5, entries.size());
+
+      sorted.clear();
+      assertTrue(sorted.keySet().isEmpty());
+      assertTrue(datasource.isEmpty());
+
+      // reading values through the views does not mark keys as used
+      Settings tracked = new Settings();
+      tracked.put("b", "2");
+      tracked.put("a", "1");
+      SortedProperties sortedTracked = new SortedProperties(tracked);
+      assertEquals(List.of("a", "b"), sortedTracked.entrySet().stream().map(Map.Entry::getKey).toList());
+      assertEquals(List.of("1", "2"), ((Collection<String[]>) sortedTracked.values()).stream().map(v -> v[0]).toList());
+      assertArrayEquals(new String[]{"1"}, sortedTracked.prefix("a").get("a"));
+      assertEquals(2, tracked.getUnusedKeys().size());
+   }
+
+   @Test
+   public void testSubset() {
+      Settings settings = new Settings();
+      settings.put("http.client.timeout", "5");
+      settings.put("http.client.url", "x");
+      settings.put("http.server.port", "80");
+      settings.put("cache.size", "10");
+      ObservableProperties observable = new ObservableProperties(settings);
+      CachingProperties caching = new CachingProperties(observable);
+      List<String> changed = new ArrayList<>();
+      observable.addPrefixObserver("http.client.", evt -> changed.add(evt.getPropertyName()));
+
+      EnhancedMap client = caching.subset("http.client.", true);
+      assertEquals(5, client.getIntegerProperty(null, "timeout"));
+      assertEquals(Set.of("timeout", "url"), client.keySet());
+      assertEquals(2, client.size());
+      assertNull(client.get("port"));
+      assertFalse(client.containsKey("http.client.url"));
+      client.put("timeout", "6");
+      assertEquals(List.of("http.client.timeout"), changed);
+      assertEquals(6, caching.getIntegerProperty(null, "http.client.timeout"));
+      assertEquals(6, client.getIntegerProperty(null, "timeout"));
+      settings.put("http.client.retries", "3");
+      assertEquals(3, client.getInt("retries", 0));
+
+      SettingsQuery q = new SettingsQuery();
+      SettingsQuery.Entry<Integer> timeout = q.add(Integer.class, null, "timeout");
+      SettingsQuery.Entry<String> proxy = q.add(String.class, "none", "proxy");
+      SettingsQuery.Result r = client.query(q);
+      assertEquals(Integer.valueOf(6), r.get(timeout));
+      assertEquals("none", r.get(proxy));
+
+      EnhancedMap http = caching.subset("http.", false);
+      assertEquals(80, http.getIntegerProperty(null, "http.server.port"));
+      assertNull(http.get("cache.size"));
+      assertThrows(VectorPrintRuntimeException.class, () -> http.getIntegerProperty(null, "cache.size"));
+      assertEquals(6, http.subset("http.client.", true).getIntegerProperty(null, "timeout"));
+
+      SortedProperties sorted = new SortedProperties(settings);
+      assertEquals(List.of("retries", "timeout", "url"), new ArrayList<>(sorted.subset("http.client.", true).keySet()));
+
+      client.clear();
+      assertTrue(client.isEmpty());
+      assertEquals(2, settings.size());
+   }
+
+   @Test
+   public void testEnhancedMapDefaults() {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      settings.put("e", "");
+      // an implementation that only provides the methods EnhancedMap always had
+      EnhancedMap external = (EnhancedMap) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EnhancedMap.class},
+          (proxy, m, args) -> m.isDefault() ? InvocationHandler.invokeDefault(proxy, m, args) : m.invoke(settings, args));
+      assertEquals(Integer.valueOf(1), external.lookup(Integer.class, "x", "a").getValue());
+      assertNull(external.lookup(Integer.class, "x"));
+      assertEquals(1, external.getInt("a", 0));
+      assertEquals(5, external.getInt("e", 5));
+      assertEquals(7L, external.getLong("x", 7));
+      assertEquals(EnhancedMap.UNVERSIONED, external.getVersion());
+      SettingKey<Integer> key = external.settingKey(Integer.class, 0, "a");
+      assertEquals(Integer.valueOf(1), key.get());
+      external.put("a", "2");
+      // unversioned, the key resolves again
+      assertEquals(EnhancedMap.UNVERSIONED, external.getVersion());
+      assertEquals(Integer.valueOf(2), key.get());
+      SortedProperties sorted = new SortedProperties(external);
+      assertEquals(List.of("a", "e"), new ArrayList<>(sorted.keySet()));
+      settings.put("b", "1");
+      assertEquals(List.of("a", "b", "e"), new ArrayList<>(sorted.keySet()));
+      SettingsQuery q = new SettingsQuery();
+      SettingsQuery.Entry<Integer> a = q.add(Integer.class, null, "a");
+      SettingsQuery.Entry<Integer> x = q.add(Integer.class, null, "x");
+      assertThrows(NoValueException.class, () -> external.query(q));
+      SettingsQuery.Result r = external.query(q.allowingNoValue());
+      assertEquals(Integer.valueOf(2), r.get(a));
+      assertNull(r.get(x));
+      assertArrayEquals(new String[]{"2"}, external.subset("", true).get("a"));
+   }
+
+   private static class BoundedCache {
+
+      @SettingsField(cacheMaximum = 1, cacheEviction = EvictionPolicy.LFU)
+      private EnhancedMap settings;
+   }
+
+   @Test
+   public void testBoundedCache() throws InterruptedException {
+      Settings settings = new Settings();
+      settings.put("a", "1");
+      settings.put("b", "2");
+      settings.put("c", "3");
+      settings.put("d", new String[]{"1", "2", "3", "4", "5", "6", "7", "8"});
+
+      CachingProperties lru = new CachingProperties(settings, EvictionPolicy.LRU, 2);
+      lru.getIntegerProperty(null, "a");
+      lru.getIntegerProperty(null, "b");
+      lru.getIntegerProperty(null, "a");
+      lru.getIntegerProperty(null, "c");
+      assertEquals(1, lru.getEvictions());
+      assertEquals(2, lru.getWeight());
+      assertEquals(1, lru.getHits());
+      lru.getIntegerProperty(null, "a");
+      assertEquals(2, lru.getHits());
+      lru.getIntegerProperty(null, "b");
+      assertEquals(4, lru.getMisses());
+      // a hit does not take the lock of a bounded cache
+      Thread reader = new Thread(() -> lru.getIntegerProperty(null, "a"));
+      synchronized (lru) {
+         reader.start();
+         reader.join(5000);
+         assertFalse(reader.isAlive());
+      }
+      assertEquals(3, lru.getHits());
+
+      CachingProperties lfu = new CachingProperties(settings, EvictionPolicy.LFU, 2);
+      lfu.getIntegerProperty(null, "a");
+      lfu.getIntegerProperty(null, "a");
+      lfu.getIntegerProperty(null, "b");
+      lfu.getIntegerProperty(null, "c");
+      lfu.getIntegerProperty(null, "a");
+      assertEquals(2, lfu.getHits());
+      assertEquals(1, lfu.getEvictions());
+
+      CachingProperties weighed = new CachingProperties(settings, EvictionPolicy.LRU, 150, true, null);
+      weighed.getIntegerProperties(null, "d");
+      assertEquals(48, weighed.getWeight());
+      weighed.getLongProperties(null, "d");
+      assertEquals(0, weighed.getEvictions());
+      weighed.getDoubleProperties(null, "d");
+      assertEquals(1, weighed.getEvictions());
+      assertEquals(0, weighed.getWeight());
+
+      CachingProperties expiring = new CachingProperties(settings, null, 0, false, Duration.ofMillis(20));
+      expiring.getIntegerProperty(null, "a");
+      expiring.getIntegerProperty(null, "a");
+      assertEquals(1, expiring.getHits());
+      Thread.sleep(50);
+      expiring.getIntegerProperty(null, "a");
+      assertEquals(1, expiring.getHits());
+      assertEquals(1, expiring.getEvictions());
+
+      BoundedCache bc = new BoundedCache();
+      sap.initSettings(bc, settings);
+      bc.settings.getIntegerProperty(null, "a");
+      bc.settings.getIntegerProperty(null, "b");
+      ((AbstractPropertiesDecorator) bc.settings).accept(new DecoratorVisitor<CachingProperties>() {
+         @Override
+         public boolean shouldVisit(EnhancedMap e) {
+            return e instanceof CachingProperties;
+         }
+
+         @Override
+         public void visit(CachingProperties e) {
+            assertEquals(1, e.getEvictions());
+         }
+      });
+   }
+
+   @Test
+   public void testJfrEvents() throws IOException {
+      Settings settings = new Settings();
+      settings.put("i", "3");
+      Path dump = File.createTempFile("settings", ".jfr").toPath();
+      try (Recording recording = new Recording()) {
+         recording.enable("com.vectorprint.configuration.Lookup");
+         recording.enable("com.vectorprint.configuration.Conversion");
+         recording.enable("com.vectorprint.configuration.Parse");
+         recording.start();
+         settings.getIntegerProperty(null, "i");
+         settings.getIntegerProperty(1, "notthere");
+         VersionedSettings versioned = new VersionedSettings();
+         // the version does not change during an update, keys are counted nonetheless
+         versioned.update(() -> new ParsingProperties(versioned, new StringReader("a=1\nb=2\nc=3\n")));
+         recording.stop();
+         recording.dump(dump);
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+      assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.vectorprint.configuration.Lookup")
+          && e.getBoolean("hit") && "i".equals(e.getString("key"))));
+      assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.vectorprint.configuration.Lookup")
+          && !e.getBoolean("hit") && "notthere".equals(e.getString("key"))));
+      assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.vectorprint.configuration.Conversion")));
+      assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.vectorprint.configuration.Parse")
+          && e.getLong("keys") == 3));
+      Files.delete(dump);
+   }
+
+   @Test
+   public void testStats() throws Exception {
+      Settings inner = new Settings();
+      inner.setId("testStats");
+      inner.put("i", "3");
+      inner.put("bad", "x");
+      inner.put("unused", "x");
+      inner.setUsageTracking(UsageTracking.NONE);
+      CachingProperties settings = new CachingProperties(inner);
+      SettingsStats stats = SettingsStats.register(settings);
+      try {
+         assertEquals(UsageTracking.ACCESS_COUNTS, inner.getUsageTracking());
+         settings.getIntegerProperty(null, "i");
+         settings.getIntegerProperty(null, "i");
+         settings.getIntegerProperty(1, "notthere");
+         assertThrows(NumberFormatException.class, () -> settings.getIntegerProperty(null, "bad"));
+         assertEquals(1L, stats.getConversionFailures());
+         assertEquals(1L, stats.getCacheHitCount());
+         // the second lookup of i is served by the cache
+         assertEquals(2L, stats.getHitCount());
+         assertEquals(1L, stats.getMissCount());
+         assertEquals(3, stats.getKeyCount());
+         assertTrue(stats.getCacheSize() > 0);
+         assertEquals(List.of("unused"), stats.getUnusedKeys());
+         assertEquals(List.of("notthere"), stats.getKeysNotPresent());
+         assertTrue(stats.topKeys(2).contains("i=1"));
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         assertEquals(3, server.getAttribute(stats.getObjectName(), "KeyCount"));
+         assertThrows(VectorPrintRuntimeException.class, () -> SettingsStats.register(settings));
+      } finally {
+         stats.unregister();
+      }
+      settings.getIntegerProperty(1, "notthere");
+      assertEquals(1L, stats.getMissCount());
+      // the tracking mode that was in place before registering is back
+      assertEquals(UsageTracking.NONE, inner.getUsageTracking());
+   }
+
+   @Test
+   public void testDiagnostics() throws InterruptedException {
+      Settings notTracked = new Settings();
+      notTracked.setId("notTracked");
+      notTracked.put("a", "1");
+      SettingsDiagnostics.setTrackAll(true);
+      Settings tracked;
+      try {
+         tracked = new Settings();
+      } finally {
+         SettingsDiagnostics.setTrackAll(false);
+      }
+      tracked.setId("tracked");
+      tracked.put("a", "1");
+      tracked.put("b", "1");
+      tracked.getProperty("a");
+      Map<String, Collection<String>> unused = SettingsDiagnostics.unusedKeys();
+      assertEquals(List.of("b"), new ArrayList<>(unused.get("tracked")));
+      assertFalse(unused.containsKey("notTracked"));
+      assertTrue(SettingsDiagnostics.report().contains("tracked: [b]"));
+      SettingsDiagnostics.track(notTracked);
+      assertTrue(SettingsDiagnostics.unusedKeys().containsKey("notTracked"));
+      SettingsDiagnostics.untrack(notTracked);
+      SettingsDiagnostics.untrack(tracked);
+      assertTrue(SettingsDiagnostics.unusedKeys().isEmpty());
+      // unused keys of garbage collected settings are still reported
+      Settings collected = trackedSettings("collected");
+      WeakReference<Settings> ref = new WeakReference<>(collected);
+      SettingsDiagnostics.track(collected);
+      collected = null;
+      for (int i = 0; i < 50 && ref.get() != null; i++) {
+         System.gc();
+         Thread.sleep(20);
+      }
+      assertNull(ref.get());
+      assertEquals(List.of("b"), new ArrayList<>(SettingsDiagnostics.unusedKeys().get("collected")));
+   }
+
+   private static Settings trackedSettings(String id) {
+      Settings settings = new Settings();
+      settings.setId(id);
+      settings.put("a", "1");
+      settings.put("b", "1");
+      settings.getProperty("a");
+      return settings;
+   }
 }